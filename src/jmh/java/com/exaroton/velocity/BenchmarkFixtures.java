@@ -0,0 +1,139 @@
+package com.exaroton.velocity;
+
+import com.exaroton.api.server.Server;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.velocitypowered.api.event.EventManager;
+import com.velocitypowered.api.proxy.ProxyServer;
+import com.velocitypowered.api.proxy.config.ProxyConfig;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import com.velocitypowered.api.proxy.server.ServerInfo;
+import org.slf4j.helpers.NOPLogger;
+
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * synthetic servers and a stub proxy for benchmarks
+ * server i is called "server-i" and has the address "server-i.exaroton.me". Every server is listed in the velocity
+ * config, every second server is registered in the proxy.
+ */
+final class BenchmarkFixtures {
+
+    private static final Gson GSON = new Gson();
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * @param index server index
+     * @param status server status
+     * @return synthetic exaroton server
+     */
+    static Server server(int index, int status) {
+        JsonObject json = new JsonObject();
+        json.addProperty("id", String.format("%016x", index * 0x9E3779B97F4A7C15L));
+        json.addProperty("name", "server-" + index);
+        json.addProperty("address", "server-" + index + ".exaroton.me");
+        json.addProperty("motd", "benchmark");
+        json.addProperty("status", status);
+        // IP literal, server infos are created with resolved addresses
+        json.addProperty("host", "10.0." + (index / 256 % 256) + "." + (index % 256));
+        json.addProperty("port", 20000 + index);
+        return GSON.fromJson(json, Server.class);
+    }
+
+    /**
+     * @param count amount of servers
+     * @param status status of all servers
+     * @return synthetic exaroton servers
+     */
+    static Server[] servers(int count, int status) {
+        Server[] servers = new Server[count];
+        for (int i = 0; i < count; i++) {
+            servers[i] = server(i, status);
+        }
+        return servers;
+    }
+
+    /**
+     * create a proxy stub for servers created by {@link #servers(int, int)}
+     * @param count amount of servers
+     * @return proxy stub
+     */
+    static ProxyServer proxy(int count) {
+        Map<String, String> configServers = new HashMap<>();
+        Map<String, RegisteredServer> registered = new ConcurrentHashMap<>();
+        for (int i = 0; i < count; i++) {
+            String name = "server-" + i;
+            configServers.put(name, name + ".exaroton.me:25565");
+            if (i % 2 == 0) {
+                ServerInfo info = new ServerInfo(name, InetSocketAddress.createUnresolved(name + ".exaroton.me", 25565));
+                registered.put(name, registeredServer(info));
+            }
+        }
+        ProxyConfig config = stub(ProxyConfig.class, Map.of("getServers", args -> Collections.unmodifiableMap(configServers)));
+        // events are dropped
+        EventManager eventManager = stub(EventManager.class, Map.of(
+                "fire", args -> CompletableFuture.completedFuture(args[0]),
+                "fireAndForget", args -> null));
+
+        Map<String, Handler> handlers = new HashMap<>();
+        handlers.put("getConfiguration", args -> config);
+        handlers.put("getEventManager", args -> eventManager);
+        handlers.put("getAllServers", args -> registered.values());
+        handlers.put("getServer", args -> Optional.ofNullable(registered.get((String) args[0])));
+        handlers.put("registerServer", args -> {
+            ServerInfo info = (ServerInfo) args[0];
+            RegisteredServer server = registeredServer(info);
+            registered.put(info.getName(), server);
+            return server;
+        });
+        handlers.put("unregisterServer", args -> registered.remove(((ServerInfo) args[0]).getName()));
+        handlers.put("getConsoleCommandSource", args -> null);
+        return stub(ProxyServer.class, handlers);
+    }
+
+    /**
+     * @param proxy proxy stub
+     * @return plugin that isn't initialized (no config, API client or scheduler)
+     */
+    static ExarotonPlugin plugin(ProxyServer proxy) {
+        return new ExarotonPlugin(proxy, NOPLogger.NOP_LOGGER, Path.of("build", "jmh-data"));
+    }
+
+    private static RegisteredServer registeredServer(ServerInfo info) {
+        return stub(RegisteredServer.class, Map.of("getServerInfo", args -> info));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(Class<T> type, Map<String, Handler> handlers) {
+        return (T) Proxy.newProxyInstance(BenchmarkFixtures.class.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                case "toString":
+                    return type.getSimpleName() + " stub";
+            }
+            Handler handler = handlers.get(method.getName());
+            if (handler == null) {
+                throw new UnsupportedOperationException(type.getSimpleName() + "." + method.getName() + " is not stubbed");
+            }
+            return handler.handle(args);
+        });
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        Object handle(Object[] args);
+    }
+}
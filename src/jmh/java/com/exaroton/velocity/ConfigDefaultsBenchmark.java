@@ -0,0 +1,60 @@
+package com.exaroton.velocity;
+
+import com.moandjiezana.toml.Toml;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * merging the default configuration into a user configuration
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ConfigDefaultsBenchmark {
+
+    /**
+     * amount of servers in the auto-start and auto-stop lists of the user configuration
+     */
+    @Param({"10", "100", "1000", "10000"})
+    public int servers;
+
+    private Toml defaults;
+
+    private Toml config;
+
+    @Setup
+    public void setup() throws IOException {
+        try (InputStream in = ExarotonPlugin.class.getResourceAsStream("/config.toml")) {
+            defaults = new Toml().read(in);
+        }
+
+        StringBuilder serverList = new StringBuilder("[");
+        for (int i = 0; i < servers; i++) {
+            serverList.append(i == 0 ? "" : ", ").append("\"server-").append(i).append("\"");
+        }
+        serverList.append("]");
+        config = new Toml().read("apiToken = \"benchmark\"\n"
+                + "watch-servers = true\n"
+                + "[auto-start]\n"
+                + "    enabled = true\n"
+                + "    servers = " + serverList + "\n"
+                + "[auto-stop]\n"
+                + "    enabled = true\n"
+                + "    servers = " + serverList + "\n");
+    }
+
+    @Benchmark
+    public Toml addDefaults() {
+        return ExarotonPlugin.addDefaults(config, defaults);
+    }
+}
@@ -0,0 +1,92 @@
+package com.exaroton.velocity;
+
+import com.exaroton.api.server.Server;
+import com.exaroton.api.server.ServerStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * server lookups and tab completions against synthetic server lists
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ServerLookupBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    public int servers;
+
+    private ExarotonPlugin plugin;
+
+    private ServerRegistry registry;
+
+    private Server[] serverList;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        serverList = BenchmarkFixtures.servers(servers, ServerStatus.ONLINE);
+        registry = ServerRegistry.of(serverList, null);
+        plugin = BenchmarkFixtures.plugin(BenchmarkFixtures.proxy(servers));
+    }
+
+    @Setup(Level.Iteration)
+    public void refreshCache() {
+        // keep the cache fresh so that no lookup tries to reach the API
+        plugin.setServerRegistry(ServerRegistry.of(serverList, registry));
+    }
+
+    private int randomIndex() {
+        return ThreadLocalRandom.current().nextInt(servers);
+    }
+
+    @Benchmark
+    public Server findServerByName() {
+        return plugin.findServer(registry, "server-" + randomIndex());
+    }
+
+    @Benchmark
+    public Server findServerByAddress() {
+        return plugin.findServer(registry, "server-" + randomIndex() + ".exaroton.me");
+    }
+
+    @Benchmark
+    public Server findServerById() {
+        return plugin.findServer(registry, serverList[randomIndex()].getId());
+    }
+
+    @Benchmark
+    public Server findServerCached() throws Exception {
+        return plugin.findServer("server-" + randomIndex(), false);
+    }
+
+    @Benchmark
+    public String findServerName() {
+        return plugin.findServerName("server-" + randomIndex() + ".exaroton.me");
+    }
+
+    @Benchmark
+    public List<String> serverCompletionsShortPrefix() {
+        return plugin.serverCompletions("server-1", null);
+    }
+
+    @Benchmark
+    public List<String> serverCompletionsFullName() {
+        return plugin.serverCompletions("server-" + randomIndex(), ServerStatus.ONLINE);
+    }
+
+    @Benchmark
+    public List<String> serverCompletionsNotInProxy() {
+        return plugin.serverCompletionsNotInProxy("server-1");
+    }
+}
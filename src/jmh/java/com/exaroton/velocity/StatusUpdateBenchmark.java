@@ -0,0 +1,64 @@
+package com.exaroton.velocity;
+
+import com.exaroton.api.server.Server;
+import com.exaroton.api.server.ServerStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * status updates of a server that is cycled through a full start and stop
+ * includes updating the server cache and registering/unregistering the server in the proxy
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class StatusUpdateBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    public int servers;
+
+    private ServerStatusListener listener;
+
+    /**
+     * states of the watched server in the order they are applied
+     */
+    private Server[] states;
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Server[] serverList = BenchmarkFixtures.servers(servers, ServerStatus.OFFLINE);
+        ExarotonPlugin plugin = BenchmarkFixtures.plugin(BenchmarkFixtures.proxy(servers));
+        plugin.setServerRegistry(ServerRegistry.of(serverList, null));
+
+        // odd servers aren't registered in the proxy
+        int index = servers - 1 - (servers % 2 == 0 ? 0 : 1);
+        int[] cycle = {ServerStatus.PREPARING, ServerStatus.STARTING, ServerStatus.LOADING, ServerStatus.ONLINE,
+                ServerStatus.STOPPING, ServerStatus.SAVING, ServerStatus.OFFLINE};
+        states = new Server[cycle.length];
+        for (int i = 0; i < cycle.length; i++) {
+            states[i] = BenchmarkFixtures.server(index, cycle[i]);
+        }
+        listener = new ServerStatusListener(plugin, serverList[index]);
+        next = 0;
+    }
+
+    @Benchmark
+    public Server statusUpdate() {
+        Server oldServer = listener.getServer();
+        Server newServer = states[next];
+        next = (next + 1) % states.length;
+        listener.statusUpdate(oldServer, newServer);
+        return newServer;
+    }
+}
@@ -0,0 +1,526 @@
+package com.exaroton.velocity;
+
+import com.exaroton.api.APIException;
+
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * client side rate limiter for exaroton API requests
+ * requests wait in priority lanes (interactive > API consumers > background) until the token bucket grants them a
+ * token. The request itself runs on the calling thread.
+ * Requests fail immediately while the circuit breaker is open, idempotent reads are retried with backoff.
+ */
+public class ApiScheduler {
+
+    /**
+     * request priority, lower ordinal is served first
+     */
+    public enum Priority {
+        /**
+         * commands executed by players or the console
+         */
+        INTERACTIVE,
+        /**
+         * other plugins using the plugin API
+         */
+        API,
+        /**
+         * background tasks (startup, cache refresh, auto start/stop)
+         */
+        BACKGROUND
+    }
+
+    /**
+     * API endpoints, used to report request metrics
+     */
+    public enum Endpoint {
+        SERVERS,
+        START,
+        STOP,
+        RESTART,
+        SUBSCRIBE;
+
+        /**
+         * @return metric label
+         */
+        public String getLabel() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /**
+     * priority of requests made by the current thread
+     */
+    private static final ThreadLocal<Priority> CURRENT_PRIORITY = ThreadLocal.withInitial(() -> Priority.BACKGROUND);
+
+    /**
+     * requests waiting for a token
+     */
+    private final PriorityBlockingQueue<Request> queue = new PriorityBlockingQueue<>();
+
+    /**
+     * request sequence number for FIFO order within a lane
+     */
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * tokens per second
+     */
+    private volatile double rate;
+
+    /**
+     * maximum amount of tokens
+     */
+    private volatile double capacity;
+
+    /**
+     * available tokens (only used by the dispatcher thread)
+     */
+    private double tokens;
+
+    /**
+     * last refill (nanos, only used by the dispatcher thread)
+     */
+    private long lastRefill = System.nanoTime();
+
+    /**
+     * granted requests per lane
+     */
+    private final LongAdder[] granted = new LongAdder[Priority.values().length];
+
+    /**
+     * total wait time per lane in nanoseconds
+     */
+    private final LongAdder[] waitTime = new LongAdder[Priority.values().length];
+
+    /**
+     * maximum wait time per lane in nanoseconds
+     */
+    private final AtomicLong[] maxWaitTime = new AtomicLong[Priority.values().length];
+
+    /**
+     * circuit breaker for all requests
+     */
+    private final CircuitBreaker circuitBreaker;
+
+    /**
+     * retry policy for idempotent reads
+     */
+    private final RetryPolicy retryPolicy;
+
+    /**
+     * amount of retried requests
+     */
+    private final LongAdder retries = new LongAdder();
+
+    /**
+     * request metrics
+     */
+    private final Metrics metrics;
+
+    private final Thread dispatcher;
+
+    private volatile boolean running = true;
+
+    /**
+     * @param rate requests per second
+     * @param burst maximum amount of requests sent at once
+     * @param circuitBreaker circuit breaker for all requests
+     * @param retryPolicy retry policy for idempotent reads
+     * @param metrics request metrics
+     */
+    public ApiScheduler(double rate, int burst, CircuitBreaker circuitBreaker, RetryPolicy retryPolicy, Metrics metrics) {
+        if (rate <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Invalid rate limit!");
+        }
+        this.rate = rate;
+        this.capacity = burst;
+        this.tokens = burst;
+        this.circuitBreaker = circuitBreaker;
+        this.retryPolicy = retryPolicy;
+        this.metrics = metrics;
+        for (int i = 0; i < granted.length; i++) {
+            granted[i] = new LongAdder();
+            waitTime[i] = new LongAdder();
+            maxWaitTime[i] = new AtomicLong();
+        }
+        this.dispatcher = new Thread(this::dispatch, "exaroton-api-scheduler");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    /**
+     * change the rate limit, waiting requests are granted at the new rate
+     * @param rate requests per second
+     * @param burst maximum amount of requests sent at once
+     */
+    public void setRateLimit(double rate, int burst) {
+        if (rate <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Invalid rate limit!");
+        }
+        this.rate = rate;
+        this.capacity = burst;
+    }
+
+    /**
+     * run a task with a request priority for the current thread
+     * @param priority request priority
+     * @param task task
+     */
+    public static void runWithPriority(Priority priority, Runnable task) {
+        Priority previous = CURRENT_PRIORITY.get();
+        CURRENT_PRIORITY.set(priority);
+        try {
+            task.run();
+        } finally {
+            CURRENT_PRIORITY.set(previous);
+        }
+    }
+
+    /**
+     * run a task with a request priority for the current thread
+     * @param priority request priority
+     * @param task task
+     * @param <T> result type
+     * @return result
+     */
+    public static <T> T supplyWithPriority(Priority priority, Supplier<T> task) {
+        Priority previous = CURRENT_PRIORITY.get();
+        CURRENT_PRIORITY.set(priority);
+        try {
+            return task.get();
+        } finally {
+            CURRENT_PRIORITY.set(previous);
+        }
+    }
+
+    /**
+     * run a task that makes API requests with a request priority for the current thread
+     * @param priority request priority
+     * @param task task
+     * @param <T> result type
+     * @return result
+     * @throws APIException exception from the API
+     */
+    public static <T> T callWithPriority(Priority priority, ApiCall<T> task) throws APIException {
+        Priority previous = CURRENT_PRIORITY.get();
+        CURRENT_PRIORITY.set(priority);
+        try {
+            return task.call();
+        } finally {
+            CURRENT_PRIORITY.set(previous);
+        }
+    }
+
+    /**
+     * @return priority of requests made by the current thread
+     */
+    public static Priority currentPriority() {
+        return CURRENT_PRIORITY.get();
+    }
+
+    /**
+     * wait for a token and run an API request with the priority of the current thread
+     * @param endpoint requested endpoint
+     * @param call API request
+     * @param <T> result type
+     * @return result
+     * @throws APIException exception from the API or if the scheduler was stopped
+     */
+    public <T> T call(Endpoint endpoint, ApiCall<T> call) throws APIException {
+        return this.call(currentPriority(), endpoint, call);
+    }
+
+    /**
+     * wait for a token and run an API request
+     * @param priority request priority
+     * @param endpoint requested endpoint
+     * @param call API request
+     * @param <T> result type
+     * @return result
+     * @throws APIException exception from the API, if the scheduler was stopped or if the circuit breaker is open
+     */
+    public <T> T call(Priority priority, Endpoint endpoint, ApiCall<T> call) throws APIException {
+        if (!circuitBreaker.tryAcquire()) {
+            metrics.apiRequests.increment(endpoint.getLabel(), "rejected");
+            throw new CircuitBreaker.OpenException(circuitBreaker.getRetryIn());
+        }
+        try {
+            this.acquire(priority);
+        } catch (APIException e) {
+            circuitBreaker.release();
+            throw e;
+        }
+
+        long start = System.nanoTime();
+        try {
+            T result = call.call();
+            circuitBreaker.onSuccess();
+            metrics.apiRequests.increment(endpoint.getLabel(), "success");
+            return result;
+        } catch (APIException e) {
+            if (RetryPolicy.isTransient(e)) {
+                circuitBreaker.onFailure();
+                metrics.apiRequests.increment(endpoint.getLabel(), "failure");
+            } else {
+                // the API answered with a client error, this neither proves nor disproves that it is healthy
+                circuitBreaker.release();
+                metrics.apiRequests.increment(endpoint.getLabel(), "error");
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            circuitBreaker.onFailure();
+            metrics.apiRequests.increment(endpoint.getLabel(), "failure");
+            throw e;
+        } finally {
+            metrics.apiLatency.observeNanos(System.nanoTime() - start, endpoint.getLabel());
+        }
+    }
+
+    /**
+     * run an idempotent API request with the priority of the current thread
+     * transient failures are retried with backoff until the retry policy or the circuit breaker gives up
+     * @param endpoint requested endpoint
+     * @param call API request
+     * @param <T> result type
+     * @return result
+     * @throws APIException exception from the last attempt
+     */
+    public <T> T read(Endpoint endpoint, ApiCall<T> call) throws APIException {
+        return this.read(currentPriority(), endpoint, call);
+    }
+
+    /**
+     * run an idempotent API request
+     * transient failures are retried with backoff until the retry policy or the circuit breaker gives up
+     * @param priority request priority
+     * @param endpoint requested endpoint
+     * @param call API request
+     * @param <T> result type
+     * @return result
+     * @throws APIException exception from the last attempt
+     */
+    public <T> T read(Priority priority, Endpoint endpoint, ApiCall<T> call) throws APIException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return this.call(priority, endpoint, call);
+            } catch (APIException e) {
+                if (!RetryPolicy.isTransient(e) || attempt >= retryPolicy.getAttempts()) {
+                    throw e;
+                }
+                try {
+                    Thread.sleep(retryPolicy.getDelay(attempt));
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+                retries.increment();
+            }
+        }
+    }
+
+    /**
+     * wait for a token and run an API request without a result with the priority of the current thread
+     * @param endpoint requested endpoint
+     * @param call API request
+     * @throws APIException exception from the API or if the scheduler was stopped
+     */
+    public void run(Endpoint endpoint, ApiRunnable call) throws APIException {
+        this.run(currentPriority(), endpoint, call);
+    }
+
+    /**
+     * wait for a token and run an API request without a result
+     * @param priority request priority
+     * @param endpoint requested endpoint
+     * @param call API request
+     * @throws APIException exception from the API, if the scheduler was stopped or if the circuit breaker is open
+     */
+    public void run(Priority priority, Endpoint endpoint, ApiRunnable call) throws APIException {
+        this.call(priority, endpoint, () -> {
+            call.run();
+            return null;
+        });
+    }
+
+    /**
+     * wait until the request is allowed
+     * @param priority request priority
+     * @throws APIException the scheduler was stopped or the thread was interrupted
+     */
+    private void acquire(Priority priority) throws APIException {
+        if (!running) {
+            throw new APIException("API scheduler has been stopped");
+        }
+        Request request = new Request(priority, sequence.getAndIncrement());
+        // cancelled requests leave the queue right away instead of when the dispatcher reaches them
+        request.grant.whenComplete((ignored, e) -> {
+            if (request.grant.isCancelled()) {
+                queue.remove(request);
+            }
+        });
+        queue.add(request);
+        if (!running) {
+            // the dispatcher might have drained the queue before the request was added
+            queue.remove(request);
+            request.grant.completeExceptionally(new IllegalStateException("API scheduler has been stopped"));
+        }
+        try {
+            request.grant.get();
+        } catch (InterruptedException e) {
+            request.grant.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new APIException("Interrupted while waiting for the API rate limit");
+        } catch (ExecutionException e) {
+            throw new APIException("API scheduler has been stopped");
+        }
+    }
+
+    private void dispatch() {
+        while (running) {
+            long wait = this.nanosUntilToken();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+                continue;
+            }
+
+            Request request;
+            try {
+                request = queue.take();
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (request.grant.isDone()) {
+                // cancelled before it was removed from the queue
+                continue;
+            }
+
+            tokens -= 1;
+            long waited = System.nanoTime() - request.created;
+            int lane = request.priority.ordinal();
+            granted[lane].increment();
+            waitTime[lane].add(waited);
+            maxWaitTime[lane].accumulateAndGet(waited, Math::max);
+            request.grant.complete(null);
+        }
+
+        this.failWaiting();
+    }
+
+    /**
+     * fail all requests waiting for a token
+     */
+    private void failWaiting() {
+        Request request;
+        while ((request = queue.poll()) != null) {
+            request.grant.completeExceptionally(new IllegalStateException("API scheduler has been stopped"));
+        }
+    }
+
+    /**
+     * refill the token bucket
+     * @return nanoseconds until a token is available
+     */
+    private long nanosUntilToken() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * rate / TimeUnit.SECONDS.toNanos(1));
+        lastRefill = now;
+        return tokens >= 1 ? 0 : (long) ((1 - tokens) * TimeUnit.SECONDS.toNanos(1) / rate);
+    }
+
+    /**
+     * stop granting requests, waiting requests fail
+     */
+    public void shutdown() {
+        running = false;
+        dispatcher.interrupt();
+        try {
+            dispatcher.join(TimeUnit.SECONDS.toMillis(1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        this.failWaiting();
+    }
+
+    /**
+     * @return circuit breaker for all requests
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * @return amount of retried requests
+     */
+    public long getRetryCount() {
+        return retries.sum();
+    }
+
+    /**
+     * @return amount of requests waiting for a token
+     */
+    public int getQueueLength() {
+        return queue.size();
+    }
+
+    /**
+     * @param priority lane
+     * @return amount of granted requests in this lane
+     */
+    public long getGrantedCount(Priority priority) {
+        return granted[priority.ordinal()].sum();
+    }
+
+    /**
+     * @param priority lane
+     * @return average time requests in this lane waited for a token in milliseconds
+     */
+    public double getAverageWaitMillis(Priority priority) {
+        long count = granted[priority.ordinal()].sum();
+        return count == 0 ? 0 : waitTime[priority.ordinal()].sum() / (double) count / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * @param priority lane
+     * @return maximum time a request in this lane waited for a token in milliseconds
+     */
+    public double getMaxWaitMillis(Priority priority) {
+        return maxWaitTime[priority.ordinal()].get() / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @FunctionalInterface
+    public interface ApiCall<T> {
+        T call() throws APIException;
+    }
+
+    @FunctionalInterface
+    public interface ApiRunnable {
+        void run() throws APIException;
+    }
+
+    private static final class Request implements Comparable<Request> {
+        private final Priority priority;
+        private final long sequence;
+        private final long created = System.nanoTime();
+        private final CompletableFuture<Void> grant = new CompletableFuture<>();
+
+        private Request(Priority priority, long sequence) {
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Request other) {
+            int result = priority.compareTo(other.priority);
+            return result != 0 ? result : Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.exaroton.velocity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * run a task for each item of a collection with bounded concurrency
+ * failures are isolated per item and reported in the results. If the executor rejects the workers, the remaining
+ * items are processed by the workers that were accepted or fail with the rejection if there are none.
+ */
+public final class BatchRunner {
+
+    private BatchRunner() {
+    }
+
+    /**
+     * run a task for each item
+     * @param items items to process
+     * @param parallelism maximum amount of tasks running at the same time
+     * @param executor executor running the tasks
+     * @param task task to run for each item
+     * @param <T> item type
+     * @param <R> result type
+     * @return results in the same order as the items
+     */
+    public static <T, R> CompletableFuture<List<Result<T, R>>> run(Collection<T> items, int parallelism, Executor executor, Task<T, R> task) {
+        return run(items, parallelism, 0, executor, task);
+    }
+
+    /**
+     * run a task for each item
+     * @param items items to process
+     * @param parallelism maximum amount of tasks running at the same time
+     * @param stagger minimum delay between the start of two consecutive tasks in milliseconds
+     * @param executor executor running the tasks
+     * @param task task to run for each item
+     * @param <T> item type
+     * @param <R> result type
+     * @return results in the same order as the items
+     */
+    public static <T, R> CompletableFuture<List<Result<T, R>>> run(Collection<T> items, int parallelism, long stagger, Executor executor, Task<T, R> task) {
+        long batchStart = System.currentTimeMillis();
+        List<T> list = new ArrayList<>(items);
+        List<Result<T, R>> results = new ArrayList<>(list.size());
+        for (int i = 0; i < list.size(); i++) {
+            results.add(null);
+        }
+
+        AtomicInteger next = new AtomicInteger();
+        int workers = Math.max(1, Math.min(parallelism, list.size()));
+        Runnable worker = () -> {
+            int index;
+            while ((index = next.getAndIncrement()) < list.size()) {
+                if (stagger > 0 && !waitUntil(batchStart + index * stagger)) {
+                    results.set(index, new Result<>(list.get(index), null, new InterruptedException(), 0));
+                    continue;
+                }
+                results.set(index, execute(list.get(index), task));
+            }
+        };
+
+        CompletableFuture<?>[] running = new CompletableFuture<?>[workers];
+        int submitted = 0;
+        for (; submitted < workers; submitted++) {
+            try {
+                running[submitted] = CompletableFuture.runAsync(worker, executor);
+            } catch (RejectedExecutionException e) {
+                if (submitted == 0) {
+                    int index;
+                    while ((index = next.getAndIncrement()) < list.size()) {
+                        results.set(index, new Result<>(list.get(index), null, e, 0));
+                    }
+                }
+                break;
+            }
+        }
+        return CompletableFuture.allOf(Arrays.copyOf(running, submitted)).thenApply(ignored -> results);
+    }
+
+    /**
+     * sleep until a point in time
+     * @param time epoch millis
+     * @return false if the thread was interrupted
+     */
+    private static boolean waitUntil(long time) {
+        long delay = time - System.currentTimeMillis();
+        if (delay <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(delay);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static <T, R> Result<T, R> execute(T item, Task<T, R> task) {
+        long start = System.nanoTime();
+        try {
+            R value = task.run(item);
+            return new Result<>(item, value, null, System.nanoTime() - start);
+        } catch (Exception e) {
+            return new Result<>(item, null, e, System.nanoTime() - start);
+        }
+    }
+
+    @FunctionalInterface
+    public interface Task<T, R> {
+        /**
+         * @param item item to process
+         * @return result
+         * @throws Exception any failure, reported in the result
+         */
+        R run(T item) throws Exception;
+    }
+
+    public static final class Result<T, R> {
+        private final T item;
+        private final R value;
+        private final Exception error;
+        private final long duration;
+
+        private Result(T item, R value, Exception error, long duration) {
+            this.item = item;
+            this.value = value;
+            this.error = error;
+            this.duration = duration;
+        }
+
+        /**
+         * @return processed item
+         */
+        public T getItem() {
+            return item;
+        }
+
+        /**
+         * @return task result or null if the task failed
+         */
+        public R getValue() {
+            return value;
+        }
+
+        /**
+         * @return exception thrown by the task or null
+         */
+        public Exception getError() {
+            return error;
+        }
+
+        /**
+         * @return did the task fail
+         */
+        public boolean isFailed() {
+            return error != null;
+        }
+
+        /**
+         * @return task duration in milliseconds
+         */
+        public long getDurationMillis() {
+            return duration / 1_000_000;
+        }
+    }
+}
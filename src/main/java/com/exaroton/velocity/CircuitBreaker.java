@@ -0,0 +1,178 @@
+package com.exaroton.velocity;
+
+import com.exaroton.api.APIException;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * circuit breaker for exaroton API requests
+ * opens after a number of consecutive transient failures. While it is open requests fail immediately instead of
+ * waiting for a network timeout. After the open time a single probe request is allowed, its result closes the breaker
+ * again or keeps it open.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        /**
+         * requests are allowed
+         */
+        CLOSED,
+        /**
+         * requests fail immediately
+         */
+        OPEN,
+        /**
+         * a single probe request is allowed
+         */
+        HALF_OPEN
+    }
+
+    /**
+     * consecutive failures after which the breaker opens
+     */
+    private final int failureThreshold;
+
+    /**
+     * time in milliseconds the breaker stays open before a probe is allowed
+     */
+    private final long openTime;
+
+    private State state = State.CLOSED;
+
+    /**
+     * consecutive failures
+     */
+    private int failures = 0;
+
+    /**
+     * time the breaker was opened (epoch millis)
+     */
+    private long openedAt = 0;
+
+    /**
+     * is a probe request running
+     */
+    private boolean probing = false;
+
+    /**
+     * amount of times the breaker opened
+     */
+    private long openCount = 0;
+
+    /**
+     * @param failureThreshold consecutive failures after which the breaker opens
+     * @param openTime time in milliseconds the breaker stays open before a probe is allowed
+     */
+    public CircuitBreaker(int failureThreshold, long openTime) {
+        if (failureThreshold < 1 || openTime < 0) {
+            throw new IllegalArgumentException("Invalid circuit breaker settings!");
+        }
+        this.failureThreshold = failureThreshold;
+        this.openTime = openTime;
+    }
+
+    /**
+     * check if a request may be sent
+     * every permitted request must be followed by {@link #onSuccess()}, {@link #onFailure()} or {@link #release()}
+     * @return is the request permitted
+     */
+    public synchronized boolean tryAcquire() {
+        switch (state) {
+            case OPEN:
+                if (System.currentTimeMillis() - openedAt < openTime) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                probing = true;
+                return true;
+            case HALF_OPEN:
+                if (probing) {
+                    return false;
+                }
+                probing = true;
+                return true;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * the API responded
+     */
+    public synchronized void onSuccess() {
+        failures = 0;
+        probing = false;
+        state = State.CLOSED;
+    }
+
+    /**
+     * a request failed with a transient error
+     */
+    public synchronized void onFailure() {
+        probing = false;
+        failures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && failures >= failureThreshold)) {
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+            openCount++;
+        }
+    }
+
+    /**
+     * a permitted request was not sent or the API answered with a client error
+     */
+    public synchronized void release() {
+        probing = false;
+    }
+
+    /**
+     * @return current state
+     */
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * @return do requests currently fail immediately
+     */
+    public synchronized boolean isOpen() {
+        return state == State.OPEN && System.currentTimeMillis() - openedAt < openTime
+                || state == State.HALF_OPEN && probing;
+    }
+
+    /**
+     * @return time in milliseconds until the next probe is allowed
+     */
+    public synchronized long getRetryIn() {
+        return state == State.OPEN ? Math.max(0, openedAt + openTime - System.currentTimeMillis()) : 0;
+    }
+
+    /**
+     * @return amount of times the breaker opened
+     */
+    public synchronized long getOpenCount() {
+        return openCount;
+    }
+
+    /**
+     * thrown instead of sending a request while the breaker is open
+     */
+    public static class OpenException extends APIException {
+        /**
+         * time in milliseconds until the next probe is allowed
+         */
+        private final long retryIn;
+
+        public OpenException(long retryIn) {
+            super("exaroton API is unavailable, retrying in " + TimeUnit.MILLISECONDS.toSeconds(retryIn + 999) + "s");
+            this.retryIn = retryIn;
+        }
+
+        /**
+         * @return time in milliseconds until the next probe is allowed
+         */
+        public long getRetryIn() {
+            return retryIn;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.exaroton.velocity;
+
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * reloads the configuration when config.toml changes
+ * editors often write a file in several steps, so changes are collected for a short time before reloading.
+ */
+public class ConfigWatcher {
+
+    /**
+     * delay between the first change and the reload
+     */
+    private static final long RELOAD_DELAY = TimeUnit.SECONDS.toMillis(1);
+
+    private final ExarotonPlugin plugin;
+
+    private final Logger logger;
+
+    /**
+     * watched configuration file
+     */
+    private final Path file;
+
+    /**
+     * is a reload scheduled
+     */
+    private final AtomicBoolean reloadScheduled = new AtomicBoolean();
+
+    private WatchService watchService;
+
+    /**
+     * @param plugin exaroton plugin
+     * @param file configuration file
+     */
+    public ConfigWatcher(ExarotonPlugin plugin, Path file) {
+        this.plugin = plugin;
+        this.logger = plugin.getLogger();
+        this.file = file.toAbsolutePath();
+    }
+
+    /**
+     * start watching the configuration file
+     * @throws IOException failed to watch the directory of the file
+     */
+    public void start() throws IOException {
+        this.watchService = file.getFileSystem().newWatchService();
+        file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        Thread thread = new Thread(this::watch, "exaroton-config-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * stop watching the configuration file
+     */
+    public void stop() {
+        if (watchService == null) {
+            return;
+        }
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            logger.debug("Failed to close config watcher", e);
+        }
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW || file.getFileName().equals(event.context())) {
+                        this.scheduleReload();
+                    }
+                }
+                if (!key.reset()) {
+                    logger.warn("Config directory is no longer accessible, stopped watching {}", file);
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // stopped
+        }
+    }
+
+    private void scheduleReload() {
+        if (!reloadScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        plugin.getProxy().getScheduler().buildTask(plugin, () -> {
+            reloadScheduled.set(false);
+            try {
+                plugin.getAsyncExecutor().execute(plugin::reloadConfig);
+            } catch (RejectedExecutionException e) {
+                logger.warn("Failed to schedule config reload", e);
+            }
+        }).delay(RELOAD_DELAY, TimeUnit.MILLISECONDS).schedule();
+    }
+}
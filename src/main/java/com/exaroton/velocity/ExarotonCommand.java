@@ -3,13 +3,13 @@ package com.exaroton.velocity;
 import com.exaroton.velocity.subcommands.*;
 import com.velocitypowered.api.command.CommandSource;
 import com.velocitypowered.api.command.SimpleCommand;
-import com.velocitypowered.api.scheduler.Scheduler;
 import net.kyori.adventure.text.Component;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.Collectors;
 
 public class ExarotonCommand implements SimpleCommand {
@@ -19,11 +19,6 @@ public class ExarotonCommand implements SimpleCommand {
      */
     private final ExarotonPlugin plugin;
 
-    /**
-     * task scheduler
-     */
-    private final Scheduler taskScheduler;
-
     /**
      * registered sub-commands
      * name -> command
@@ -36,7 +31,6 @@ public class ExarotonCommand implements SimpleCommand {
         }
         this.plugin = plugin;
         this.loadCommands();
-        this.taskScheduler = plugin.getProxy().getScheduler();
     }
 
     /**
@@ -49,6 +43,7 @@ public class ExarotonCommand implements SimpleCommand {
         this.registerCommand(new AddServer(plugin));
         this.registerCommand(new RemoveServer(plugin));
         this.registerCommand(new SwitchServer(plugin));
+        this.registerCommand(new ShowStats(plugin));
     }
 
     /**
@@ -80,7 +75,12 @@ public class ExarotonCommand implements SimpleCommand {
             return;
         }
 
-        taskScheduler.buildTask(plugin, () -> command.execute(sender, Arrays.copyOfRange(args, 1, args.length))).schedule();
+        try {
+            plugin.getAsyncExecutor().execute(() -> ApiScheduler.runWithPriority(ApiScheduler.Priority.INTERACTIVE,
+                    () -> command.execute(sender, Arrays.copyOfRange(args, 1, args.length))));
+        } catch (RejectedExecutionException e) {
+            sender.sendMessage(Message.error("Too many pending requests, please try again later."));
+        }
     }
 
     /**
@@ -111,8 +111,13 @@ public class ExarotonCommand implements SimpleCommand {
             SubCommand command = subCommands
                     .get(args[0]);
             if (command == null || !sender.hasPermission(command.getPermission())) return new ArrayList<>();
-            return command
-                    .onTabComplete(sender, Arrays.copyOfRange(args, 1, args.length));
+            long start = System.nanoTime();
+            try {
+                return ApiScheduler.supplyWithPriority(ApiScheduler.Priority.INTERACTIVE, () -> command
+                        .onTabComplete(sender, Arrays.copyOfRange(args, 1, args.length)));
+            } finally {
+                plugin.getMetrics().completionTime.observeNanos(System.nanoTime() - start);
+            }
         }
     }
 }
@@ -10,11 +10,13 @@ import com.velocitypowered.api.command.CommandManager;
 import com.velocitypowered.api.command.CommandSource;
 import com.velocitypowered.api.event.Subscribe;
 import com.velocitypowered.api.event.proxy.ProxyInitializeEvent;
+import com.velocitypowered.api.event.proxy.ProxyReloadEvent;
 import com.velocitypowered.api.event.proxy.ProxyShutdownEvent;
 import com.velocitypowered.api.plugin.annotation.DataDirectory;
 import com.velocitypowered.api.proxy.ProxyServer;
 import com.velocitypowered.api.proxy.server.RegisteredServer;
 import com.velocitypowered.api.proxy.server.ServerInfo;
+import com.velocitypowered.api.scheduler.ScheduledTask;
 import org.slf4j.Logger;
 
 import javax.inject.Inject;
@@ -23,11 +25,16 @@ import java.io.InputStream;
 import java.net.InetSocketAddress;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.*;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -42,7 +49,17 @@ public class ExarotonPlugin {
     /**
      * main configuration (config.toml)
      */
-    private Toml config;
+    private volatile PluginConfig config;
+
+    /**
+     * reloads the configuration on changes or null if disabled
+     */
+    private ConfigWatcher configWatcher;
+
+    /**
+     * servers referenced by the config, resolved against the latest server list
+     */
+    private volatile ServerConfig serverConfig = ServerConfig.EMPTY;
 
     /**
      * Proxy server
@@ -58,19 +75,95 @@ public class ExarotonPlugin {
     /**
      * server cache
      */
-    private Server[] serverCache;
+    private final AtomicReference<ServerRegistry> serverRegistry = new AtomicReference<>();
+
+    /**
+     * keep serving the cached server list and refresh it in the background
+     */
+    private volatile boolean backgroundRefresh = false;
+
+    /**
+     * time in milliseconds after which the cached server list is considered stale
+     */
+    private volatile long cacheLifetime = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * background refresh of the server list or null if disabled
+     */
+    private ScheduledTask cacheRefreshTask;
+
+    /**
+     * maximum age in milliseconds of a server list that is still accepted by forced lookups
+     */
+    public static final long FORCED_MAX_AGE = 500;
+
+    /**
+     * currently running server list request, shared by all callers
+     */
+    private final AtomicReference<CompletableFuture<ServerRegistry>> pendingFetch = new AtomicReference<>();
+
+    /**
+     * is a background refresh of the server list running
+     */
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    /**
+     * server list snapshot or null if disabled
+     */
+    private ServerSnapshotStore snapshotStore;
+
+    /**
+     * executor for blocking I/O
+     */
+    private PluginExecutor executor;
+
+    /**
+     * rate limiter for API requests
+     */
+    private ApiScheduler apiScheduler;
+
+    /**
+     * join queue or null if disabled
+     */
+    private JoinQueue joinQueue;
+
+    /**
+     * idle auto-stop or null if disabled
+     */
+    private IdleStopManager idleStopManager;
+
+    /**
+     * reconnect supervisor for status subscriptions or null if disabled
+     */
+    private SubscriptionSupervisor subscriptionSupervisor;
+
+    /**
+     * plugin metrics
+     */
+    private final Metrics metrics = new Metrics();
+
+    /**
+     * prometheus endpoint or null if disabled
+     */
+    private MetricsServer metricsServer;
+
+    /**
+     * index of the servers registered in the proxy
+     */
+    private final ProxyServerIndex proxyServerIndex;
 
     /**
      * server status listeners
      * serverid -> status listener
      */
-    private final HashMap<String, ServerStatusListener> statusListeners = new HashMap<>();
+    private final StatusListenerRegistry statusListeners = new StatusListenerRegistry(this);
 
     @Inject
     public ExarotonPlugin(ProxyServer proxy, Logger logger, @DataDirectory final Path folder) {
         this.proxy = proxy;
         this.logger = logger;
         this.folder = folder;
+        this.proxyServerIndex = new ProxyServerIndex(proxy);
     }
 
     @Subscribe
@@ -83,16 +176,49 @@ public class ExarotonPlugin {
         }
         ExarotonPluginAPI.setPlugin(this);
         if (this.config != null && this.createExarotonClient()) {
+            this.configureExecutor();
+            this.configureApiScheduler();
             this.registerCommands();
+            this.configureServerCache();
+            this.configureJoinQueue();
+            this.configureIdleStop();
+            this.configureSubscriptions();
+            this.configureMetrics();
             this.runAsyncTasks();
+            this.configureConfigWatcher();
+        }
+    }
+
+    @Subscribe
+    public void onProxyReload(ProxyReloadEvent event) {
+        this.proxyServerIndex.invalidate();
+        // velocity server names of config references may have changed
+        ServerRegistry registry = this.serverRegistry.get();
+        if (this.config != null && registry != null) {
+            this.resolveServerConfig(registry);
         }
     }
 
     @Subscribe
     public void onProxyShutdown(ProxyShutdownEvent event) {
+        if (this.configWatcher != null) {
+            this.configWatcher.stop();
+        }
         if (this.exarotonClient != null) {
             this.autoStopServers();
         }
+        if (this.executor != null && !this.executor.shutdown(5, TimeUnit.SECONDS)) {
+            logger.warn("Some tasks didn't finish before the proxy shut down");
+        }
+        if (this.apiScheduler != null) {
+            this.apiScheduler.shutdown();
+        }
+        if (this.snapshotStore != null) {
+            this.snapshotStore.writeNow();
+        }
+        if (this.metricsServer != null) {
+            this.metricsServer.stop();
+        }
     }
 
     /**
@@ -123,12 +249,206 @@ public class ExarotonPlugin {
      * @throws IOException exception loading config
      */
     private void loadConfig(Path folder) throws IOException {
-        final Path configFile = this.getConfigFile(folder);
-        this.config = new Toml().read(Files.newInputStream(configFile));
+        this.config = this.readConfig(this.getConfigFile(folder), true);
+        this.serverConfig = this.config.getServers();
+    }
+
+    /**
+     * read and parse config.toml
+     * @param configFile configuration file
+     * @param writeDefaults write missing default values to the file
+     * @return parsed configuration
+     * @throws IOException exception reading or writing config
+     */
+    private PluginConfig readConfig(Path configFile, boolean writeDefaults) throws IOException {
+        Toml config;
+        try (final InputStream in = Files.newInputStream(configFile)) {
+            config = new Toml().read(in);
+        }
+        Toml defaults;
         try (final InputStream in = getClass().getResourceAsStream("/config.toml")) {
-            Toml defaultConfig = new Toml().read(in);
-            this.config = this.addDefaults(this.config, defaultConfig);
-            new TomlWriter().write(this.config.toMap(), Files.newOutputStream(configFile));
+            defaults = new Toml().read(in);
+        }
+        Map<String, Object> data = config.toMap();
+        if (addDefaults(data, defaults.toMap())) {
+            String merged = new TomlWriter().write(data);
+            if (writeDefaults) {
+                Files.writeString(configFile, merged);
+            }
+            config = new Toml().read(merged);
+        }
+        return PluginConfig.of(config);
+    }
+
+    /**
+     * watch config.toml for changes if enabled
+     */
+    private void configureConfigWatcher() {
+        if (!config.isAutoReload()) {
+            return;
+        }
+        this.configWatcher = new ConfigWatcher(this, folder.resolve("config.toml"));
+        try {
+            this.configWatcher.start();
+        } catch (IOException e) {
+            logger.error("Failed to watch config file, changes will only be applied after a restart", e);
+            this.configWatcher = null;
+        }
+    }
+
+    /**
+     * read config.toml again and apply the changed settings
+     * settings that can't be changed at runtime are logged and applied on the next restart
+     */
+    public synchronized void reloadConfig() {
+        PluginConfig previous = this.config;
+        PluginConfig next;
+        try {
+            next = this.readConfig(folder.resolve("config.toml"), false);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Failed to reload config, keeping the previous configuration", e);
+            return;
+        }
+        ServerConfig previousServers = this.serverConfig;
+        this.config = next;
+        ServerRegistry registry = this.serverRegistry.get();
+        if (registry != null) {
+            this.resolveServerConfig(registry);
+        } else {
+            this.serverConfig = next.getServers();
+        }
+        this.applyConfig(previous, next, previousServers, this.serverConfig);
+    }
+
+    /**
+     * resolve the servers referenced by the config against a server list
+     * @param registry server list
+     */
+    private synchronized void resolveServerConfig(ServerRegistry registry) {
+        this.serverConfig = this.config.getServers().resolve(this, registry);
+    }
+
+    /**
+     * @return servers referenced by the config, resolved against the latest server list
+     */
+    public ServerConfig getServerConfig() {
+        return serverConfig;
+    }
+
+    /**
+     * apply the differences between two configurations
+     * @param previous previous configuration
+     * @param config new configuration
+     * @param previousServers servers referenced by the previous configuration
+     * @param servers servers referenced by the new configuration
+     */
+    private void applyConfig(PluginConfig previous, PluginConfig config, ServerConfig previousServers, ServerConfig servers) {
+        List<String> applied = new ArrayList<>();
+        if (!config.getCacheMode().equals(previous.getCacheMode())
+                || config.getCacheRefreshInterval() != previous.getCacheRefreshInterval()) {
+            this.scheduleCacheRefresh();
+            applied.add("cache");
+        }
+        if (config.getRateLimit() != previous.getRateLimit() || config.getRateLimitBurst() != previous.getRateLimitBurst()) {
+            this.apiScheduler.setRateLimit(config.getRateLimit(), config.getRateLimitBurst());
+            applied.add("rate-limit");
+        }
+        if (this.idleStopManager != null && config.getIdleStopTimeout() != previous.getIdleStopTimeout()) {
+            this.idleStopManager.setIdleTimeout(config.getIdleStopTimeout());
+            applied.add("idle-stop");
+        }
+        if (config.getSubscriptionIdleTimeout() != previous.getSubscriptionIdleTimeout()
+                || config.getMaxSubscriptions() != previous.getMaxSubscriptions()) {
+            this.statusListeners.start(config.getSubscriptionIdleTimeout(), config.getMaxSubscriptions());
+            applied.add("subscriptions");
+        }
+        if (config.isAutoStopEnabled() != previous.isAutoStopEnabled()
+                || !servers.getAutoStopServers().equals(previousServers.getAutoStopServers())
+                || config.getAutoStopTimeout() != previous.getAutoStopTimeout()) {
+            // read when the proxy stops
+            applied.add("auto-stop");
+        }
+        if (!servers.getSettings().equals(previousServers.getSettings())
+                || !servers.getStartClasses().equals(previousServers.getStartClasses())) {
+            // looked up on every use
+            applied.add("servers");
+        }
+
+        if (config.isWatchServers() != previous.isWatchServers()) {
+            if (config.isWatchServers()) {
+                CompletableFuture.supplyAsync(this::watchServers, executor).thenCompose(future -> future)
+                        .exceptionally(e -> {
+                            logger.error("Failed to watch servers", e);
+                            return null;
+                        });
+            } else {
+                // the subscriptions are closed once they are no longer used
+                for (ServerStatusListener listener : this.statusListeners.getListeners()) {
+                    listener.release(ServerStatusListener.Reference.WATCH);
+                }
+            }
+            applied.add("watch-servers");
+        }
+
+        // only start servers that weren't in the list before, servers that are already watched keep their subscription
+        List<ServerReference> started = new ArrayList<>();
+        if (config.isAutoStartEnabled()) {
+            for (ServerReference server : servers.getAutoStartServers()) {
+                if (!previous.isAutoStartEnabled() || !previousServers.getAutoStartServers().contains(server)) {
+                    started.add(server);
+                }
+            }
+        }
+        if (!started.isEmpty()) {
+            this.autoStartServers(started).exceptionally(e -> {
+                logger.error("Failed to start servers", e);
+                return null;
+            });
+            applied.add("auto-start");
+        }
+
+        // servers that were removed from the list no longer keep their subscription open
+        List<ServerReference> removed = new ArrayList<>();
+        if (previous.isAutoStartEnabled()) {
+            for (ServerReference server : previousServers.getAutoStartServers()) {
+                if (!config.isAutoStartEnabled() || !servers.getAutoStartServers().contains(server)) {
+                    removed.add(server);
+                }
+            }
+        }
+        if (!removed.isEmpty()) {
+            this.releaseStatusListeners(removed, ServerStatusListener.Reference.AUTO_START);
+            if (started.isEmpty()) {
+                applied.add("auto-start");
+            }
+        }
+
+        if (config.requiresRestart(previous)) {
+            logger.warn("Some changed settings only take effect after the proxy restarts");
+        }
+        if (applied.isEmpty()) {
+            logger.info("Reloaded config");
+        } else {
+            logger.info("Reloaded config, applied changes to {}", String.join(", ", applied));
+        }
+    }
+
+    /**
+     * release a reference to the status listeners of these servers
+     * @param references servers
+     * @param reference reference to release
+     */
+    private void releaseStatusListeners(List<ServerReference> references, ServerStatusListener.Reference reference) {
+        ServerRegistry registry = this.serverRegistry.get();
+        for (ServerReference server : references) {
+            String id = server.getId();
+            if (id == null && registry != null) {
+                Server found = server.find(this, registry);
+                id = found == null ? null : found.getId();
+            }
+            if (id != null) {
+                this.releaseStatusListener(id, reference);
+            }
         }
     }
 
@@ -136,24 +456,46 @@ public class ExarotonPlugin {
      * update config recursively
      * @param config current configuration
      * @param defaults defaults
-     * @return config with defaults
+     * @return config with defaults or the same config if no defaults were missing
      */
-    private Toml addDefaults(Toml config, Toml defaults) {
+    static Toml addDefaults(Toml config, Toml defaults) {
         if (config == null) return defaults;
 
         Map<String, Object> data = config.toMap();
+        if (!addDefaults(data, defaults.toMap())) {
+            return config;
+        }
+        return new Toml().read(new TomlWriter().write(data));
+    }
+
+    /**
+     * add missing default values recursively
+     * nested tables are copied before they are changed
+     * @param data current configuration
+     * @param defaults defaults
+     * @return were any values added
+     */
+    @SuppressWarnings("unchecked")
+    private static boolean addDefaults(Map<String, Object> data, Map<String, Object> defaults) {
+        boolean changed = false;
         for (Map.Entry<String, Object> entry: defaults.entrySet()) {
             String key = entry.getKey();
             Object value = entry.getValue();
+            Object current = data.get(key);
 
-            if (value instanceof Toml) {
-                data.put(key, addDefaults(config.getTable(key), defaults.getTable(key)).toMap());
+            if (value instanceof Map && current instanceof Map) {
+                Map<String, Object> table = new HashMap<>((Map<String, Object>) current);
+                if (addDefaults(table, (Map<String, Object>) value)) {
+                    data.put(key, table);
+                    changed = true;
+                }
             }
-            else if (!config.contains(key)) {
+            else if (!data.containsKey(key)) {
                 data.put(key, value);
+                changed = true;
             }
         }
-        return new Toml().read(new TomlWriter().write(data));
+        return changed;
     }
 
     /**
@@ -161,7 +503,7 @@ public class ExarotonPlugin {
      * @return was the client successfully created
      */
     public boolean createExarotonClient() {
-        String apiToken = this.config.getString("apiToken");
+        String apiToken = this.config.getApiToken();
         if (apiToken == null || apiToken.length() == 0 || apiToken.equals("example-token")) {
             logger.error("Invalid API Token specified!");
             return false;
@@ -180,46 +522,406 @@ public class ExarotonPlugin {
         commandManager.register(commandManager.metaBuilder("exaroton").build(), new ExarotonCommand(this));
     }
 
+    /**
+     * create the executor for blocking I/O
+     */
+    private void configureExecutor() {
+        this.executor = new PluginExecutor(config.getExecutorThreads(), config.getExecutorQueueSize());
+    }
+
+    /**
+     * create the rate limiter, circuit breaker and retry policy for API requests
+     */
+    private void configureApiScheduler() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(config.getCircuitBreakerThreshold(), config.getCircuitBreakerOpenTime());
+        RetryPolicy retryPolicy = new RetryPolicy(config.getRetryAttempts(), config.getRetryDelay(), config.getRetryMaxDelay());
+        this.apiScheduler = new ApiScheduler(config.getRateLimit(), config.getRateLimitBurst(), circuitBreaker, retryPolicy, metrics);
+    }
+
+    /**
+     * @return rate limiter for API requests
+     */
+    public ApiScheduler getApiScheduler() {
+        return apiScheduler;
+    }
+
+    /**
+     * read the cache settings and schedule the background refresh if enabled
+     */
+    private void configureServerCache() {
+        this.scheduleCacheRefresh();
+
+        if (config.isCacheSnapshot()) {
+            this.snapshotStore = new ServerSnapshotStore(this, folder.resolve("servers.json"));
+            ServerRegistry restored = this.snapshotStore.load(exarotonClient);
+            if (restored != null && this.serverRegistry.compareAndSet(null, restored)) {
+                logger.info("Restored {} servers from snapshot, revalidating in the background", restored.size());
+                this.resolveServerConfig(restored);
+                this.refreshServersAsync();
+            }
+        }
+    }
+
+    /**
+     * apply the cache mode and refresh interval, replacing a previously scheduled background refresh
+     */
+    private synchronized void scheduleCacheRefresh() {
+        if (this.cacheRefreshTask != null) {
+            this.cacheRefreshTask.cancel();
+            this.cacheRefreshTask = null;
+        }
+        long lifetime = config.getCacheRefreshInterval();
+        this.cacheLifetime = lifetime;
+        String mode = config.getCacheMode();
+        switch (mode) {
+            case "expire":
+                this.backgroundRefresh = false;
+                break;
+            case "refresh":
+                this.backgroundRefresh = true;
+                this.cacheRefreshTask = this.getProxy().getScheduler().buildTask(this, () -> {
+                    if (this.getServerCacheAge() < 0 || this.getServerCacheAge() > lifetime / 2) {
+                        this.refreshServersAsync();
+                    }
+                }).repeat(lifetime, TimeUnit.MILLISECONDS).schedule();
+                break;
+            default:
+                logger.warn("Unknown cache mode {}, using expire", mode);
+                this.backgroundRefresh = false;
+        }
+    }
+
+    /**
+     * create and register the join queue if enabled
+     */
+    private void configureJoinQueue() {
+        if (!config.isJoinQueueEnabled()) {
+            return;
+        }
+        this.joinQueue = new JoinQueue(this, config.getJoinQueueFallbackServer(), config.getJoinQueueBatchSize(),
+                config.getJoinQueueBatchInterval());
+        this.getProxy().getEventManager().register(this, this.joinQueue);
+    }
+
+    /**
+     * create and register the idle auto-stop if enabled
+     */
+    private void configureIdleStop() {
+        if (!config.isIdleStopEnabled()) {
+            return;
+        }
+        this.idleStopManager = new IdleStopManager(this, config.getIdleStopTimeout());
+        this.getProxy().getEventManager().register(this, this.idleStopManager);
+        this.idleStopManager.start();
+    }
+
+    /**
+     * start closing status subscriptions that are no longer used and checking them for missed updates
+     */
+    private void configureSubscriptions() {
+        this.statusListeners.start(config.getSubscriptionIdleTimeout(), config.getMaxSubscriptions());
+
+        if (config.getResyncInterval() <= 0) {
+            return;
+        }
+        this.subscriptionSupervisor = new SubscriptionSupervisor(this, config.getReconnectDelay(), config.getMaxReconnectDelay());
+        this.subscriptionSupervisor.start(config.getResyncInterval());
+    }
+
+    /**
+     * register gauges and start the prometheus endpoint if enabled
+     */
+    private void configureMetrics() {
+        metrics.gauge("exaroton_cache_age_seconds", "age of the cached server list",
+                () -> this.getServerCacheAge() / 1000.0);
+        metrics.gauge("exaroton_cached_servers", "servers in the cached server list", () -> {
+            ServerRegistry registry = this.serverRegistry.get();
+            return registry == null ? 0 : registry.size();
+        });
+        metrics.gauge("exaroton_subscriptions", "open status subscriptions", statusListeners::size);
+        metrics.gauge("exaroton_executor_queue_depth", "tasks waiting for an I/O thread", executor::getQueueDepth);
+        metrics.gauge("exaroton_executor_active_threads", "I/O threads running a task", executor::getActiveCount);
+        metrics.gauge("exaroton_rate_limit_queue_length", "API requests waiting for the rate limit", apiScheduler::getQueueLength);
+        metrics.gauge("exaroton_circuit_breaker_open", "is the circuit breaker open (1) or not (0)",
+                () -> apiScheduler.getCircuitBreaker().isOpen() ? 1 : 0);
+
+        if (config.getMetricsPort() <= 0) {
+            return;
+        }
+        try {
+            this.metricsServer = new MetricsServer(metrics, config.getMetricsHost(), config.getMetricsPort());
+            logger.info("Serving metrics on {}", this.metricsServer.getAddress());
+        } catch (IOException e) {
+            logger.error("Failed to start metrics endpoint", e);
+        }
+    }
+
+    /**
+     * @return plugin metrics
+     */
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return server status listeners
+     */
+    public StatusListenerRegistry getStatusListeners() {
+        return statusListeners;
+    }
+
+    /**
+     * @return reconnect supervisor for status subscriptions or null if disabled
+     */
+    public SubscriptionSupervisor getSubscriptionSupervisor() {
+        return subscriptionSupervisor;
+    }
+
+    /**
+     * @return idle auto-stop or null if disabled
+     */
+    public IdleStopManager getIdleStopManager() {
+        return idleStopManager;
+    }
+
+    /**
+     * offline servers stay registered in the proxy if the join queue is enabled
+     * so that players can still connect to them
+     * @return keep offline servers registered
+     */
+    public boolean keepOfflineServersRegistered() {
+        return this.joinQueue != null;
+    }
+
+    /**
+     * @return join queue or null if disabled
+     */
+    public JoinQueue getJoinQueue() {
+        return joinQueue;
+    }
+
     /**
      * update server cache to provided servers
      * @throws APIException API exceptions
      * @return exaroton servers
      */
     public Server[] fetchServers() throws APIException {
-        this.getProxy().getScheduler().buildTask(this, () -> this.serverCache = null).delay(1, TimeUnit.MINUTES).schedule();
-        return this.serverCache = exarotonClient.getServers();
+        return this.fetchRegistry().toArray();
+    }
+
+    /**
+     * fetch the server list and replace the server cache
+     * servers that received a websocket update while the request was running keep the newer state.
+     * concurrent callers share the result of a single request
+     * @throws APIException API exceptions
+     * @return new server registry
+     */
+    public ServerRegistry fetchRegistry() throws APIException {
+        CompletableFuture<ServerRegistry> future = new CompletableFuture<>();
+        CompletableFuture<ServerRegistry> pending = this.pendingFetch.compareAndExchange(null, future);
+        if (pending != null) {
+            return awaitFetch(pending);
+        }
+
+        try {
+            long fetchStart = System.currentTimeMillis();
+            Server[] servers = apiScheduler.read(ApiScheduler.Endpoint.SERVERS, exarotonClient::getServers);
+            // retried if a websocket update replaced the registry concurrently, so that update is merged as well
+            ServerRegistry registry = this.serverRegistry.updateAndGet(previous ->
+                    ServerRegistry.of(this.withNewerUpdates(servers, fetchStart), previous));
+            this.resolveServerConfig(registry);
+            future.complete(registry);
+            this.scheduleSnapshot();
+            return registry;
+        } catch (APIException | RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            this.pendingFetch.compareAndSet(future, null);
+        }
+    }
+
+    /**
+     * replace fetched servers with the state of their status listener if it received an update after the request
+     * was started
+     * @param servers fetched servers
+     * @param fetchStart time the request was started (epoch millis)
+     * @return servers with the newest known state
+     */
+    private Server[] withNewerUpdates(Server[] servers, long fetchStart) {
+        Server[] merged = servers;
+        for (int i = 0; i < servers.length; i++) {
+            ServerStatusListener listener = this.statusListeners.get(servers[i].getId());
+            if (listener != null && listener.getLastUpdate() >= fetchStart) {
+                if (merged == servers) {
+                    merged = servers.clone();
+                }
+                merged[i] = listener.getServer();
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * wait for a server list request started by another caller
+     * @param pending pending request
+     * @return fetched server registry
+     * @throws APIException exception thrown by the request
+     */
+    private ServerRegistry awaitFetch(CompletableFuture<ServerRegistry> pending) throws APIException {
+        try {
+            return pending.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof APIException) {
+                throw (APIException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * refresh the server cache in the background
+     * does nothing if a refresh is already running
+     */
+    public void refreshServersAsync() {
+        if (!this.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            this.executor.execute(() -> {
+                try {
+                    this.fetchRegistry();
+                } catch (CircuitBreaker.OpenException e) {
+                    logger.debug("Skipped server list refresh: {}", e.getMessage());
+                } catch (APIException e) {
+                    logger.warn("Failed to refresh server list", e);
+                } finally {
+                    this.refreshing.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            this.refreshing.set(false);
+            logger.warn("Failed to schedule server list refresh", e);
+        }
+    }
+
+    /**
+     * replace the server cache
+     * @param registry server registry
+     */
+    void setServerRegistry(ServerRegistry registry) {
+        this.serverRegistry.set(registry);
+    }
+
+    /**
+     * @return cached server registry without checking its age or null if nothing is cached
+     */
+    public ServerRegistry getCachedServerRegistry() {
+        return this.serverRegistry.get();
+    }
+
+    /**
+     * write the server list snapshot soon if enabled
+     */
+    private void scheduleSnapshot() {
+        if (this.snapshotStore != null) {
+            this.snapshotStore.scheduleWrite();
+        }
+    }
+
+    /**
+     * @return age of the server cache in milliseconds or -1 if nothing is cached
+     */
+    public long getServerCacheAge() {
+        ServerRegistry registry = this.serverRegistry.get();
+        return registry == null ? -1 : System.currentTimeMillis() - registry.getTimestamp();
     }
 
     /**
      * find a server
      * if a server can't be uniquely identified then the id will be preferred
      * @param query server name, address or id
-     * @param force skip cache
+     * @param force skip cache (server lists up to {@link #FORCED_MAX_AGE} milliseconds old are still accepted)
      * @return found server or null
      * @throws APIException exceptions from the API
      */
     public Server findServer(String query, boolean force) throws APIException {
-        if (this.getProxy().getConfiguration().getServers().containsKey(query)) {
-            query = this.getProxy().getConfiguration().getServers().get(query);
-        }
-        final String finalQuery = query;
-        Server[] servers = serverCache != null && !force ? serverCache : fetchServers();
+        return force ? this.findServer(query, FORCED_MAX_AGE) : this.findServer(query, -1);
+    }
 
-        servers = Arrays.stream(servers)
-                .filter(server -> matchExact(server, finalQuery))
-                .toArray(Server[]::new);
+    /**
+     * find a server
+     * if a server can't be uniquely identified then the id will be preferred
+     * @param query server name, address or id
+     * @param maxAge maximum age of the cached server list in milliseconds or -1 to use the cache settings
+     * (older server lists are still used while the API is unavailable)
+     * @return found server or null
+     * @throws APIException exceptions from the API
+     */
+    public Server findServer(String query, long maxAge) throws APIException {
+        return this.findServer(this.getServerRegistry(maxAge), query);
+    }
 
-        switch (servers.length) {
-            case 0:
-                return null;
+    /**
+     * get a server registry that was fetched from the API
+     * statuses and hosts in a list restored from a snapshot may be outdated, so decisions based on them (watching,
+     * auto-start) wait for the revalidating request instead
+     * @return server registry (request if necessary)
+     * @throws APIException exceptions from the API
+     */
+    private ServerRegistry getLiveServerRegistry() throws APIException {
+        ServerRegistry registry = this.serverRegistry.get();
+        if (registry == null || registry.isRestored()) {
+            return this.fetchRegistry();
+        }
+        return this.getServerRegistry();
+    }
 
-            case 1:
-                return servers[0];
+    /**
+     * get a server registry that isn't older than maxAge
+     * @param maxAge maximum age of the cached server list in milliseconds or -1 to use the cache settings
+     * @return server registry (request if necessary)
+     * @throws APIException exceptions from the API
+     */
+    public ServerRegistry getServerRegistry(long maxAge) throws APIException {
+        if (maxAge < 0) {
+            return this.getServerRegistry();
+        }
+        ServerRegistry registry = this.serverRegistry.get();
+        if (registry == null || System.currentTimeMillis() - registry.getTimestamp() > maxAge) {
+            metrics.cacheLookups.increment("miss");
+            return this.fetchOrCached(registry);
+        }
+        metrics.cacheLookups.increment("hit");
+        return registry;
+    }
 
-            default:
-                Optional<Server> server = Arrays.stream(servers).filter(s -> s.getId().equals(finalQuery)).findFirst();
-                return server.orElse(servers[0]);
+    /**
+     * get the cached server registry if it can be used without waiting for a request
+     * @param maxAge maximum age of the cached server list in milliseconds or -1 to use the cache lifetime
+     * @return cached server registry or null if it is missing or too old
+     */
+    public ServerRegistry getFreshServerRegistry(long maxAge) {
+        ServerRegistry registry = this.serverRegistry.get();
+        if (registry == null || System.currentTimeMillis() - registry.getTimestamp() > (maxAge < 0 ? cacheLifetime : maxAge)) {
+            return null;
         }
+        metrics.cacheLookups.increment("hit");
+        return registry;
+    }
+
+    /**
+     * find a server in a server list
+     * @param registry server list
+     * @param query server name, address, id or proxy name
+     * @return found server or null
+     */
+    public Server findServer(ServerRegistry registry, String query) {
+        String address = this.getProxy().getConfiguration().getServers().get(query);
+        return registry.find(address != null ? address : query);
     }
 
     /**
@@ -246,10 +948,50 @@ public class ExarotonPlugin {
      * @return get server cache (request if necessary)
      */
     public Server[] getServerCache() throws APIException {
-        if (serverCache == null) {
-            this.fetchServers();
+        return this.getServerRegistry().toArray();
+    }
+
+    /**
+     * get the current server registry
+     * a stale registry is fetched again, or refreshed in the background if background refresh is enabled or the
+     * registry was restored from a snapshot
+     * @return current server registry (request if necessary)
+     * @throws APIException exceptions from the API
+     */
+    public ServerRegistry getServerRegistry() throws APIException {
+        ServerRegistry registry = this.serverRegistry.get();
+        if (registry == null) {
+            metrics.cacheLookups.increment("miss");
+            return this.fetchRegistry();
+        }
+        if (System.currentTimeMillis() - registry.getTimestamp() > cacheLifetime) {
+            if (!backgroundRefresh && !registry.isRestored()) {
+                metrics.cacheLookups.increment("miss");
+                return this.fetchOrCached(registry);
+            }
+            metrics.cacheLookups.increment("stale");
+            this.refreshServersAsync();
+            return registry;
+        }
+        metrics.cacheLookups.increment("hit");
+        return registry;
+    }
+
+    /**
+     * fetch the server list or use the cached server list while the circuit breaker is open
+     * @param cached cached server list or null
+     * @return server registry
+     * @throws APIException exceptions from the API
+     */
+    private ServerRegistry fetchOrCached(ServerRegistry cached) throws APIException {
+        try {
+            return this.fetchRegistry();
+        } catch (CircuitBreaker.OpenException e) {
+            if (cached == null) {
+                throw e;
+            }
+            return cached;
         }
-        return serverCache;
     }
 
     /**
@@ -281,6 +1023,11 @@ public class ExarotonPlugin {
         return result;
     }
 
+    /**
+     * maximum amount of tab completions returned
+     */
+    public static final int MAX_COMPLETIONS = 100;
+
     /**
      * find auto completions by a query and status
      * @param query partial server name, address or ID
@@ -288,54 +1035,83 @@ public class ExarotonPlugin {
      * @return all matching server names, addresses and IDs
      */
     public List<String> serverCompletions(String query, Integer status) {
-        Stream<Server> servers;
+        ServerRegistry registry;
         try {
-            servers = Arrays.stream(getServerCache());
+            registry = getServerRegistry();
+        }
+        catch (CircuitBreaker.OpenException exception) {
+            return new ArrayList<>();
         }
         catch (APIException exception) {
             logger.error("Failed to access API", exception);
             return new ArrayList<>();
         }
-        if (status != null)
-            servers = findWithStatus(servers, status);
-        servers = findWithQuery(servers, query);
-        Server[] matching = servers.toArray(Server[]::new);
-
-        List<String> result = this.getProxy().getAllServers().stream()
-                .map(s -> s.getServerInfo().getName())
-                .filter(s -> s.startsWith(query))
-                .collect(Collectors.toList());
-
-        result.addAll(getAllNames(matching));
 
+        List<String> result = new ArrayList<>();
+        proxyServerIndex.complete(query, MAX_COMPLETIONS, result);
+        registry.complete(query, status == null ? null : server -> server.hasStatus(status), MAX_COMPLETIONS, result);
         return result;
     }
 
     public List<String> serverCompletionsNotInProxy(String query) {
-        Stream<Server> servers;
+        ServerRegistry registry;
         try {
-            servers = Arrays.stream(getServerCache());
+            registry = getServerRegistry();
+        } catch (CircuitBreaker.OpenException exception) {
+            return Collections.emptyList();
         } catch (APIException exception) {
             logger.error("Failed to access API", exception);
             return Collections.emptyList();
         }
-        servers = findWithQuery(servers, query);
-        servers = servers.filter(s -> {
-            String name = findServerName(s.getAddress(), s.getName());
+
+        List<String> result = new ArrayList<>();
+        registry.complete(query, server -> {
+            String name = findServerName(server.getAddress(), server.getName());
             return this.getProxy().getServer(name).isEmpty();
-        });
+        }, MAX_COMPLETIONS, result);
+        return result;
+    }
 
-        return getAllNames(servers.toArray(Server[]::new));
+    /**
+     * register a server in the proxy
+     * @param info server info
+     * @return registered server
+     */
+    public RegisteredServer registerServer(ServerInfo info) {
+        RegisteredServer server = proxy.registerServer(info);
+        proxyServerIndex.invalidate();
+        return server;
     }
 
     /**
-     * listen to server status
-     * if there already is a status listener then add the sender and/or name
+     * register an exaroton server in the proxy and fire an {@link ExarotonServerRegisteredEvent}
+     * @param info server info
+     * @param server exaroton server
+     * @return registered server
+     */
+    public RegisteredServer registerServer(ServerInfo info, Server server) {
+        RegisteredServer registeredServer = this.registerServer(info);
+        proxy.getEventManager().fireAndForget(new ExarotonServerRegisteredEvent(server, registeredServer));
+        return registeredServer;
+    }
+
+    /**
+     * unregister a server from the proxy
+     * @param info server info
+     */
+    public void unregisterServer(ServerInfo info) {
+        proxy.unregisterServer(info);
+        proxyServerIndex.invalidate();
+    }
+
+    /**
+     * listen to server status and keep the subscription open until the plugin API reference is released
+     * if there already is a status listener then add the name
      * @param server         server to subscribe to
      * @param name           server name in bungee server list
      */
     public ServerStatusListener listenToStatus(Server server, ServerInfo info, String name) {
-        return this.listenToStatus(server, null, info , name, -1);
+        return this.listenToStatus(server, null, info , name, -1, ServerStatusListener.Reference.API);
     }
 
     /**
@@ -348,31 +1124,70 @@ public class ExarotonPlugin {
      * @param expectedStatus expected server staus
      */
     public ServerStatusListener listenToStatus(Server server, CommandSource sender, ServerInfo info, String name, int expectedStatus) {
-        if (statusListeners.containsKey(server.getId())) {
-            return statusListeners.get(server.getId())
-                    .setSender(sender, expectedStatus)
+        return this.listenToStatus(server, sender, info, name, expectedStatus, null);
+    }
+
+    /**
+     * listen to server status
+     * if there already is a status listener then add the sender and/or name
+     * @param server server to subscribe to
+     * @param sender command sender to update
+     * @param info velocity server info
+     * @param name server name
+     * @param expectedStatus expected server staus
+     * @param reference keep the subscription open until this reference is released or null to close it once it is
+     *                  no longer used
+     * @throws StatusListenerRegistry.SubscribeException failed to subscribe to the server
+     */
+    public ServerStatusListener listenToStatus(Server server, CommandSource sender, ServerInfo info, String name, int expectedStatus,
+                                               ServerStatusListener.Reference reference) {
+        ServerStatusListener listener = statusListeners.getOrCreate(server, l -> {
+            l.setSender(sender, expectedStatus)
                     .setServerInfo(info)
                     .setName(name);
+            if (reference != null) {
+                l.retain(reference);
+            }
+        });
+        if (idleStopManager != null) {
+            idleStopManager.track(listener);
         }
-        server.subscribe();
-        ServerStatusListener listener = new ServerStatusListener(this, server)
-                .setSender(sender, expectedStatus)
-                .setServerInfo(info)
-                .setName(name);
-        server.addStatusSubscriber(listener);
-        statusListeners.put(server.getId(), listener);
         return listener;
     }
 
+    /**
+     * release a reference to a status listener
+     * the subscription is closed once it is no longer used
+     * @param serverId server id
+     * @param reference reference to release
+     * @return was the reference held
+     */
+    public boolean releaseStatusListener(String serverId, ServerStatusListener.Reference reference) {
+        ServerStatusListener listener = this.statusListeners.get(serverId);
+        return listener != null && listener.release(reference);
+    }
+
+    /**
+     * @param serverId server id
+     * @return status listener for this server or null
+     */
+    public ServerStatusListener getStatusListener(String serverId) {
+        return this.statusListeners.get(serverId);
+    }
+
+    /**
+     * @param name server name in the proxy
+     * @return status listener for the server with this name or null
+     */
+    public ServerStatusListener findStatusListenerByProxyName(String name) {
+        return this.statusListeners.findByProxyName(name);
+    }
+
     /**
      * stop listening to server status
      * @param serverId ID of the server to unsubscribe from
      */
     public void stopListeningToStatus(String serverId) {
-        if (!this.statusListeners.containsKey(serverId)) {
-            return;
-        }
-        this.statusListeners.get(serverId).unsubscribe();
         this.statusListeners.remove(serverId);
     }
 
@@ -380,44 +1195,102 @@ public class ExarotonPlugin {
      * start autostart and watch servers
      */
     public void runAsyncTasks() {
-        this.getProxy().getScheduler().buildTask(this, () -> {
-            if (config.getBoolean("watch-servers")) {
-                this.watchServers();
-            }
-            this.autoStartServers();
-        }).schedule();
+        CompletableFuture<Void> watching = config.isWatchServers() ?
+                CompletableFuture.supplyAsync(this::watchServers, executor).thenCompose(future -> future) :
+                CompletableFuture.completedFuture(null);
+        watching.thenCompose(ignored -> this.autoStartServers())
+                .exceptionally(e -> {
+                    logger.error("Failed to run startup tasks", e);
+                    return null;
+                });
     }
 
     private static final Pattern ADDRESS_REGEX = Pattern.compile(".*\\.exaroton\\.me(:\\d+)?$");
 
+    /**
+     * result of watching a server from the velocity config
+     */
+    private enum WatchResult {
+        ONLINE,
+        OFFLINE,
+        NOT_FOUND
+    }
+
     /**
      * watch servers in the velocity config
+     * all servers are resolved from one server list and subscribed to in parallel
+     * @return future completed when all servers have been processed
      */
-    public void watchServers(){
-        for (RegisteredServer registeredServer: proxy.getAllServers()) {
-            String address = registeredServer.getServerInfo().getAddress().getHostName();
-            if (ADDRESS_REGEX.matcher(address).matches()) {
-                address = address.replaceAll(":\\d+$", "");
-                try {
-                    Server server = this.findServer(address, false);
-                    if (server == null) {
-                        logger.warn("Can't find server {}. Unable to watch status changes", address);
-                        return;
-                    }
-                    logger.info("Found exaroton server: {}. Starting to watch status changes", address);
-                    if (server.hasStatus(ServerStatus.ONLINE)) {
-                        proxy.unregisterServer(registeredServer.getServerInfo());
-                        proxy.registerServer(constructServerInfo(registeredServer.getServerInfo().getName(), server));
-                    } else {
-                        proxy.unregisterServer(registeredServer.getServerInfo());
-                        logger.info("Server {} is offline, removed it from the server list!", address);
-                    }
-                    this.listenToStatus(server, null, registeredServer.getServerInfo(), null, -1);
-                } catch (APIException e) {
-                    logger.error("Failed to access API, not watching {}", address, e);
-                }
+    public CompletableFuture<Void> watchServers() {
+        long start = System.currentTimeMillis();
+        List<RegisteredServer> servers = new ArrayList<>();
+        for (RegisteredServer registeredServer : proxy.getAllServers()) {
+            if (ADDRESS_REGEX.matcher(registeredServer.getServerInfo().getAddress().getHostName()).matches()) {
+                servers.add(registeredServer);
             }
         }
+        if (servers.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        ServerRegistry registry;
+        try {
+            registry = this.getLiveServerRegistry();
+        } catch (APIException e) {
+            logger.error("Failed to access API, not watching servers", e);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return BatchRunner.run(servers, config.getWatchConcurrency(), this.getAsyncExecutor(), registeredServer -> this.watchServer(registry, registeredServer))
+                .thenAccept(results -> {
+                    EnumMap<WatchResult, Integer> counts = new EnumMap<>(WatchResult.class);
+                    int failed = 0;
+                    for (BatchRunner.Result<RegisteredServer, WatchResult> result : results) {
+                        if (result.isFailed()) {
+                            failed++;
+                            logger.error("Failed to watch {}", result.getItem().getServerInfo().getName(), result.getError());
+                        }
+                        else {
+                            counts.merge(result.getValue(), 1, Integer::sum);
+                        }
+                    }
+                    logger.info("Processed {} exaroton servers in {}ms: {} online, {} offline, {} not found, {} failed",
+                            results.size(), System.currentTimeMillis() - start,
+                            counts.getOrDefault(WatchResult.ONLINE, 0), counts.getOrDefault(WatchResult.OFFLINE, 0),
+                            counts.getOrDefault(WatchResult.NOT_FOUND, 0), failed);
+                });
+    }
+
+    /**
+     * watch a server from the velocity config
+     * @param registry server list
+     * @param registeredServer server in the velocity config
+     * @return result
+     */
+    private WatchResult watchServer(ServerRegistry registry, RegisteredServer registeredServer) {
+        String address = registeredServer.getServerInfo().getAddress().getHostName();
+        Server server = registry.find(address);
+        if (server == null) {
+            logger.warn("Can't find server {}. Unable to watch status changes", address);
+            return WatchResult.NOT_FOUND;
+        }
+
+        logger.info("Found exaroton server: {}. Starting to watch status changes", address);
+        WatchResult result;
+        if (server.hasStatus(ServerStatus.ONLINE)) {
+            this.unregisterServer(registeredServer.getServerInfo());
+            this.registerServer(constructServerInfo(registeredServer.getServerInfo().getName(), server), server);
+            result = WatchResult.ONLINE;
+        } else if (this.keepOfflineServersRegistered()) {
+            logger.info("Server {} is offline, players will be queued until it is online!", address);
+            result = WatchResult.OFFLINE;
+        } else {
+            this.unregisterServer(registeredServer.getServerInfo());
+            logger.info("Server {} is offline, removed it from the server list!", address);
+            result = WatchResult.OFFLINE;
+        }
+        this.listenToStatus(server, null, registeredServer.getServerInfo(), null, -1, ServerStatusListener.Reference.WATCH);
+        return result;
     }
 
     /**
@@ -430,51 +1303,117 @@ public class ExarotonPlugin {
         return new ServerInfo(name, new InetSocketAddress(server.getHost(), server.getPort()));
     }
 
+    /**
+     * result of automatically starting a server
+     */
+    private enum AutoStartResult {
+        STARTED,
+        ALREADY_ONLINE,
+        ALREADY_STARTING,
+        NOT_FOUND,
+        NOT_OFFLINE
+    }
+
     /**
      * automatically start servers from the config (asynchronous)
+     * @return future completed when all servers have been processed
      */
-    public void autoStartServers() {
-        if (!config.getBoolean("auto-start.enabled", false)) return;
-        for (String query: config.<String>getList("auto-start.servers")) {
-            try {
-                Server server = this.findServer(query, false);
+    public CompletableFuture<Void> autoStartServers() {
+        if (!config.isAutoStartEnabled()) return CompletableFuture.completedFuture(null);
+        return this.autoStartServers(serverConfig.getAutoStartServers());
+    }
 
-                if (server == null) {
-                    logger.warn("Can't start {}: Server not found", query);
-                    continue;
-                }
+    /**
+     * automatically start servers (asynchronous)
+     * servers with a higher priority are started first. Each start class is started in parallel with its own limit
+     * (auto-start.classes, default auto-start.parallelism) and an optional delay between starts (auto-start.stagger).
+     * @param servers servers from the config
+     * @return future completed when all servers have been processed
+     */
+    private CompletableFuture<Void> autoStartServers(List<ServerReference> servers) {
+        long start = System.currentTimeMillis();
+        ServerConfig serverConfig = this.serverConfig;
+        List<ServerReference> ordered = new ArrayList<>(servers);
+        ordered.sort(Comparator.comparingInt((ServerReference server) -> {
+            ServerSettings settings = serverConfig.getSettings(server);
+            return settings == null ? 0 : settings.getPriority();
+        }).reversed());
+
+        Map<String, List<ServerReference>> classes = new LinkedHashMap<>();
+        for (ServerReference server : ordered) {
+            ServerSettings settings = serverConfig.getSettings(server);
+            classes.computeIfAbsent(settings == null ? null : settings.getStartClass(), key -> new ArrayList<>()).add(server);
+        }
+        List<CompletableFuture<List<BatchRunner.Result<ServerReference, AutoStartResult>>>> batches = new ArrayList<>();
+        for (Map.Entry<String, List<ServerReference>> entry : classes.entrySet()) {
+            batches.add(BatchRunner.run(entry.getValue(),
+                    serverConfig.getStartParallelism(entry.getKey(), config.getAutoStartParallelism()),
+                    config.getAutoStartStagger(), this.getAsyncExecutor(), this::autoStartServer));
+        }
 
-                if (server.hasStatus(ServerStatus.ONLINE)) {
-                    String name = findServerName(server.getAddress(), server.getName());
-                    if (name == null) {
-                        logger.info("{} is already online, adding it to proxy!", server.getAddress());
-                        this.getProxy().registerServer(this.constructServerInfo(server.getName(), server));
-                    } else {
-                        logger.info("{} is already online!", server.getAddress());
+        return CompletableFuture.allOf(batches.toArray(CompletableFuture[]::new))
+                .thenAccept(ignored -> {
+                    List<BatchRunner.Result<ServerReference, AutoStartResult>> results = new ArrayList<>();
+                    for (CompletableFuture<List<BatchRunner.Result<ServerReference, AutoStartResult>>> batch : batches) {
+                        results.addAll(batch.join());
                     }
-                    this.listenToStatus(server, null, null, name, -1);
-                    continue;
-                }
-
-                if (server.hasStatus(ServerStatus.STARTING, ServerStatus.LOADING, ServerStatus.PREPARING, ServerStatus.RESTARTING)) {
-                    logger.info("{} is already starting!", server.getAddress());
-                    this.listenToStatus(server, null, null, findServerName(server.getAddress()), -1);
-                    continue;
-                }
+                    int started = 0;
+                    for (BatchRunner.Result<ServerReference, AutoStartResult> result : results) {
+                        if (result.isFailed()) {
+                            logger.error("Failed to start {} ({}ms)!", result.getItem(), result.getDurationMillis(), result.getError());
+                            continue;
+                        }
+                        if (result.getValue() == AutoStartResult.STARTED) {
+                            started++;
+                        }
+                        logger.info("Auto-start {}: {} ({}ms)", result.getItem(), result.getValue(), result.getDurationMillis());
+                    }
+                    logger.info("Auto-start finished in {}ms: started {} of {} server{}", System.currentTimeMillis() - start,
+                            started, results.size(), results.size() == 1 ? "" : "s");
+                });
+    }
 
-                if (!server.hasStatus(ServerStatus.OFFLINE)) {
-                    logger.warn("Can't start {}: Server isn't offline.", server.getAddress());
-                    continue;
-                }
+    /**
+     * automatically start a server from the config
+     * @param reference server from the config
+     * @return result
+     * @throws APIException failed to start the server
+     */
+    private AutoStartResult autoStartServer(ServerReference reference) throws APIException {
+        Server server = reference.find(this, this.getLiveServerRegistry());
 
-                logger.info("Starting {}", server.getAddress());
-                this.listenToStatus(server, null, null, findServerName(server.getAddress()), -1);
-                server.start();
+        if (server == null) {
+            logger.warn("Can't start {}: Server not found", reference);
+            return AutoStartResult.NOT_FOUND;
+        }
 
-            } catch (APIException e) {
-                logger.error("Failed to start {}!", query, e);
+        if (server.hasStatus(ServerStatus.ONLINE)) {
+            String name = findServerName(server.getAddress(), server.getName());
+            if (name == null) {
+                logger.info("{} is already online, adding it to proxy!", server.getAddress());
+                this.registerServer(this.constructServerInfo(server.getName(), server), server);
+            } else {
+                logger.info("{} is already online!", server.getAddress());
             }
+            this.listenToStatus(server, null, null, name, -1, ServerStatusListener.Reference.AUTO_START);
+            return AutoStartResult.ALREADY_ONLINE;
+        }
+
+        if (server.hasStatus(ServerStatus.STARTING, ServerStatus.LOADING, ServerStatus.PREPARING, ServerStatus.RESTARTING)) {
+            logger.info("{} is already starting!", server.getAddress());
+            this.listenToStatus(server, null, null, findServerName(server.getAddress()), -1, ServerStatusListener.Reference.AUTO_START);
+            return AutoStartResult.ALREADY_STARTING;
         }
+
+        if (!server.hasStatus(ServerStatus.OFFLINE)) {
+            logger.warn("Can't start {}: Server isn't offline.", server.getAddress());
+            return AutoStartResult.NOT_OFFLINE;
+        }
+
+        logger.info("Starting {}", server.getAddress());
+        this.listenToStatus(server, null, null, findServerName(server.getAddress()), -1, ServerStatusListener.Reference.AUTO_START);
+        apiScheduler.run(ApiScheduler.Endpoint.START, server::start);
+        return AutoStartResult.STARTED;
     }
 
     /**
@@ -484,6 +1423,13 @@ public class ExarotonPlugin {
         return proxy;
     }
 
+    /**
+     * @return executor for asynchronous plugin tasks
+     */
+    public PluginExecutor getAsyncExecutor() {
+        return executor;
+    }
+
     /**
      * @return logger
      */
@@ -507,79 +1453,149 @@ public class ExarotonPlugin {
      * @return server name e.g. lobby
      */
     public String findServerName(String address, String fallback) {
-        for (Map.Entry<String, String> entry : proxy.getConfiguration().getServers().entrySet()) {
-            if (entry.getValue().matches(Pattern.quote(address) + "(:\\d+)?")) {
-                return entry.getKey();
-            }
-        }
-        return fallback;
+        String name = proxyServerIndex.findName(address);
+        return name != null ? name : fallback;
     }
 
+    /**
+     * replace a server in the server cache
+     * @param server updated server
+     */
     public void updateServer(Server server) {
-        if (serverCache == null) return;
-        int index = 0;
-        for (; index < serverCache.length; index++) {
-            if (serverCache[index].getId().equals(server.getId())) break;
-        }
-        if (index < serverCache.length) {
-            serverCache[index] = server;
-        }
+        this.serverRegistry.updateAndGet(registry -> registry == null ? null : registry.withServer(server));
+        this.scheduleSnapshot();
+    }
+
+    /**
+     * result of automatically stopping a server
+     */
+    private enum AutoStopResult {
+        STOPPED,
+        TIMED_OUT,
+        NOT_FOUND,
+        ALREADY_OFFLINE,
+        ALREADY_STOPPING,
+        NOT_ONLINE
     }
 
     /**
      * automatically stop servers from the config
+     * servers are resolved from the cached server list and stopped in parallel. A server counts as stopped once the
+     * status listener confirms that it is saving, stopping or offline. The whole process is limited by auto-stop.timeout.
      */
     public void autoStopServers() {
-        if (!config.getBoolean("auto-stop.enabled")) return;
+        PluginConfig config = this.config;
+        if (!config.isAutoStopEnabled()) return;
 
-        ExecutorService executor = Executors.newCachedThreadPool();
-        ArrayList<Callable<Object>> stopping = new ArrayList<>();
+        long start = System.currentTimeMillis();
+        long deadline = start + config.getAutoStopTimeout();
 
-        for (String query : config.<String>getList("auto-stop.servers")) {
+        // status listeners know the current status, the cached list is only used to find the servers
+        ServerRegistry registry = this.serverRegistry.get();
+        if (registry == null) {
             try {
-                Server server = this.findServer(query, false);
+                registry = CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return this.fetchRegistry();
+                    } catch (APIException e) {
+                        throw new CompletionException(e);
+                    }
+                }, executor).get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.error("Interrupted while fetching the server list, not stopping servers");
+                return;
+            } catch (ExecutionException | TimeoutException | RejectedExecutionException e) {
+                logger.error("Failed to access API, not stopping servers", e);
+                return;
+            }
+        }
 
-                if (server == null) {
-                    logger.warn("Can't stop " + query + ": Server not found");
-                    continue;
-                }
+        Map<String, CompletableFuture<AutoStopResult>> results = new LinkedHashMap<>();
+        for (ServerReference reference : this.serverConfig.getAutoStopServers()) {
+            results.put(reference.getQuery(), this.autoStopServer(registry, reference, deadline)
+                    .exceptionally(e -> {
+                        logger.error("Failed to stop {}!", reference, e);
+                        return null;
+                    }));
+        }
 
-                String name = findServerName(server.getAddress(), server.getName());
-                if (server.hasStatus(ServerStatus.OFFLINE, ServerStatus.CRASHED)) {
-                    logger.info(name + " is already offline!");
-                    continue;
-                }
+        try {
+            CompletableFuture.allOf(results.values().toArray(CompletableFuture[]::new))
+                    .get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            // reported per server below
+        }
 
-                if (server.hasStatus(ServerStatus.SAVING, ServerStatus.STOPPING)) {
-                    logger.info(name + " is already stopping!");
-                    continue;
-                }
+        int stopped = 0;
+        for (Map.Entry<String, CompletableFuture<AutoStopResult>> entry : results.entrySet()) {
+            AutoStopResult result = entry.getValue().getNow(AutoStopResult.TIMED_OUT);
+            if (result == AutoStopResult.STOPPED) {
+                stopped++;
+            }
+            logger.info("Auto-stop {}: {}", entry.getKey(), result == null ? "FAILED" : result);
+        }
+        logger.info("Stopped {} of {} server{} in {}ms", stopped, results.size(), results.size() == 1 ? "" : "s",
+                System.currentTimeMillis() - start);
+    }
 
-                if (!server.hasStatus(ServerStatus.ONLINE)) {
-                    logger.error("Can't stop {}: Server isn't online.", name);
-                    continue;
-                }
+    /**
+     * stop a server from the config
+     * @param registry cached server list
+     * @param reference server from the config
+     * @param deadline time until the server has to confirm the stop (epoch millis)
+     * @return result
+     */
+    private CompletableFuture<AutoStopResult> autoStopServer(ServerRegistry registry, ServerReference reference, long deadline) {
+        Server server = reference.find(this, registry);
+        if (server == null) {
+            logger.warn("Can't stop {}: Server not found", reference);
+            return CompletableFuture.completedFuture(AutoStopResult.NOT_FOUND);
+        }
 
-                logger.info("Stopping " + name);
-                stopping.add(() -> {
-                    server.stop();
-                    return null;
-                });
-            } catch (APIException e) {
-                logger.error("Failed to stop {}!", query, e);
-            }
+        // a status listener knows a more recent state than the cached server list
+        ServerStatusListener existing = this.statusListeners.get(server.getId());
+        Server current = existing != null ? existing.getServer() : server;
+        String name = findServerName(current.getAddress(), current.getName());
+        if (current.hasStatus(ServerStatus.OFFLINE, ServerStatus.CRASHED)) {
+            logger.info("{} is already offline!", name);
+            return CompletableFuture.completedFuture(AutoStopResult.ALREADY_OFFLINE);
         }
-        if (stopping.size() == 0)
-            return;
 
-        try {
-            executor.invokeAll(stopping);
-        } catch (InterruptedException e) {
-            logger.error("Failed to stop servers", e);
-            return;
+        if (current.hasStatus(ServerStatus.SAVING, ServerStatus.STOPPING)) {
+            logger.info("{} is already stopping!", name);
+            return CompletableFuture.completedFuture(AutoStopResult.ALREADY_STOPPING);
+        }
+
+        if (!current.hasStatus(ServerStatus.ONLINE)) {
+            logger.error("Can't stop {}: Server isn't online.", name);
+            return CompletableFuture.completedFuture(AutoStopResult.NOT_ONLINE);
         }
 
-        int count = stopping.size();
-        logger.info("Successfully stopped {} server{}!", count, (count == 1 ? "" : "s"));
+        logger.info("Stopping {}", name);
+        Duration remaining = Duration.ofMillis(Math.max(0, deadline - System.currentTimeMillis()));
+        return CompletableFuture.supplyAsync(() -> this.listenToStatus(current, null, null, name, -1), executor)
+                .thenCompose(listener -> {
+                    CompletableFuture<Server> confirmed = listener.waitForStatus(remaining,
+                            ServerStatus.SAVING, ServerStatus.STOPPING, ServerStatus.OFFLINE);
+                    try {
+                        apiScheduler.run(ApiScheduler.Endpoint.STOP, listener.getServer()::stop);
+                    } catch (APIException e) {
+                        confirmed.cancel(false);
+                        throw new CompletionException(e);
+                    }
+                    return confirmed;
+                })
+                .thenApply(confirmed -> AutoStopResult.STOPPED)
+                .orTimeout(remaining.toMillis(), TimeUnit.MILLISECONDS)
+                .exceptionally(e -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    if (cause instanceof TimeoutException) {
+                        return AutoStopResult.TIMED_OUT;
+                    }
+                    throw new CompletionException(cause);
+                });
     }
 }
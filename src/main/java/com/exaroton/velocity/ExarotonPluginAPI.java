@@ -7,9 +7,17 @@ import com.velocitypowered.api.proxy.ConnectionRequestBuilder;
 import com.velocitypowered.api.proxy.Player;
 import com.velocitypowered.api.proxy.server.RegisteredServer;
 
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 public class ExarotonPluginAPI {
 
@@ -26,7 +34,24 @@ public class ExarotonPluginAPI {
      * @throws APIException exception while fetching server list
      */
     public static Server findServer(String query) throws APIException {
-        return plugin.findServer(query, true);
+        record("findServer");
+        return ApiScheduler.callWithPriority(priority(), () -> plugin.findServer(query, true));
+    }
+
+    /**
+     * find a server by it's
+     * - proxy name
+     * - id
+     * - address (e.g. example.exaroton.me)
+     * - server name
+     * @param query search query
+     * @param maxAge maximum age of the cached server list in milliseconds
+     * @return found server
+     * @throws APIException exception while fetching server list
+     */
+    public static Server findServer(String query, long maxAge) throws APIException {
+        record("findServer");
+        return ApiScheduler.callWithPriority(priority(), () -> plugin.findServer(query, Math.max(0, maxAge)));
     }
 
     /**
@@ -36,6 +61,11 @@ public class ExarotonPluginAPI {
      * @throws APIException exception while starting server
      */
     public static boolean startServer(Server server) throws APIException {
+        record("startServer");
+        return start(server);
+    }
+
+    private static boolean start(Server server) throws APIException {
         if (server == null) {
             throw new NullPointerException("No server provided!");
         }
@@ -44,8 +74,8 @@ public class ExarotonPluginAPI {
             return false;
         }
 
-        watchServer(server);
-        server.start();
+        watch(server, null);
+        plugin.getApiScheduler().run(priority(), ApiScheduler.Endpoint.START, server::start);
         return true;
     }
 
@@ -57,6 +87,11 @@ public class ExarotonPluginAPI {
      * @throws APIException exception while stopping server
      */
     public static boolean stopServer(Server server) throws APIException {
+        record("stopServer");
+        return stop(server);
+    }
+
+    private static boolean stop(Server server) throws APIException {
         if (server == null) {
             throw new NullPointerException("No server provided!");
         }
@@ -65,8 +100,8 @@ public class ExarotonPluginAPI {
             return false;
         }
 
-        watchServer(server);
-        server.stop();
+        watch(server, null);
+        plugin.getApiScheduler().run(priority(), ApiScheduler.Endpoint.STOP, server::stop);
         return true;
     }
 
@@ -77,6 +112,11 @@ public class ExarotonPluginAPI {
      * @throws APIException exception while restarting server
      */
     public static boolean restartServer(Server server) throws APIException {
+        record("restartServer");
+        return restart(server);
+    }
+
+    private static boolean restart(Server server) throws APIException {
         if (server == null) {
             throw new NullPointerException("No server provided!");
         }
@@ -85,8 +125,8 @@ public class ExarotonPluginAPI {
             return false;
         }
 
-        watchServer(server);
-        server.restart();
+        watch(server, null);
+        plugin.getApiScheduler().run(priority(), ApiScheduler.Endpoint.RESTART, server::restart);
         return true;
     }
 
@@ -96,11 +136,16 @@ public class ExarotonPluginAPI {
      * @return was it added
      */
     public static boolean addServer(Server server) {
+        record("addServer");
+        return add(server);
+    }
+
+    private static boolean add(Server server) {
         if (server == null) {
             throw new NullPointerException("No server provided!");
         }
 
-        ServerStatusListener listener = watchServer(server);
+        ServerStatusListener listener = watch(server);
         String name = listener.getName(server);
 
         if (server.hasStatus(ServerStatus.ONLINE)) {
@@ -108,7 +153,7 @@ public class ExarotonPluginAPI {
                 return false;
             }
             else {
-                plugin.getProxy().registerServer(plugin.constructServerInfo(name, server));
+                plugin.registerServer(plugin.constructServerInfo(name, server), server);
                 return true;
             }
         }
@@ -120,8 +165,31 @@ public class ExarotonPluginAPI {
      * add it the proxy when it becomes online
      * remove it when it goes offline
      * @param server server to watch
+     * @return status listener
+     * @throws StatusListenerRegistry.SubscribeException failed to subscribe to the server
      */
     public static ServerStatusListener watchServer(Server server) {
+        record("watchServer");
+        return watch(server);
+    }
+
+    /**
+     * watch this server without recording an API call
+     * the subscription stays open until {@link #stopWatchingServer(Server)} is called
+     * @param server server to watch
+     * @return status listener
+     */
+    private static ServerStatusListener watch(Server server) {
+        return watch(server, ServerStatusListener.Reference.API);
+    }
+
+    /**
+     * subscribe to this server without recording an API call
+     * @param server server to watch
+     * @param reference reference that keeps the subscription open or null for transient actions
+     * @return status listener
+     */
+    private static ServerStatusListener watch(Server server, ServerStatusListener.Reference reference) {
         if (server == null) {
             throw new NullPointerException("No server provided!");
         }
@@ -129,48 +197,120 @@ public class ExarotonPluginAPI {
         String name = plugin.findServerName(server.getAddress());
         Optional<RegisteredServer> registeredServer = name == null ? Optional.empty() : plugin.getProxy().getServer(name);
 
-        return plugin.listenToStatus(server, registeredServer.map(RegisteredServer::getServerInfo).orElse(null), name);
+        return ApiScheduler.supplyWithPriority(priority(), () -> plugin.listenToStatus(server, null,
+                registeredServer.map(RegisteredServer::getServerInfo).orElse(null), name, -1, reference));
     }
 
     /**
      * stop watching updates for this server
+     * the subscription is closed once nothing else uses it (velocity config, auto-start, pending status changes)
      * @param server server
      */
     public static void stopWatchingServer(Server server) {
+        record("stopWatchingServer");
         if (server == null) {
             throw new NullPointerException("No server provided!");
         }
 
-        plugin.stopListeningToStatus(server.getId());
+        plugin.releaseStatusListener(server.getId(), ServerStatusListener.Reference.API);
     }
 
+    /**
+     * default time to wait for a server to go online when switching
+     */
+    public static final Duration DEFAULT_SWITCH_TIMEOUT = Duration.ofMinutes(10);
+
     /**
      * send this player to this server
      * start the server or add it to the network if necessary
+     * this method doesn't block, the server is started and the player is moved asynchronously
      * @param player player to move
      * @param server server to move to
-     * @throws APIException exception starting the server
-     * @throws InterruptedException interrupted while
+     * @throws APIException never thrown, errors complete the returned future instead
+     * @throws InterruptedException never thrown, kept for compatibility
      * @return connection request
      */
     public static CompletableFuture<ConnectionRequestBuilder.Result> switchServer(Player player, Server server) throws APIException, InterruptedException {
+        return switchServer(player, server, DEFAULT_SWITCH_TIMEOUT);
+    }
+
+    /**
+     * send this player to this server
+     * start the server or add it to the network if necessary
+     * this method doesn't block: the server is started on the plugin executor, the future completes when the player
+     * has been moved. Cancelling the returned future stops waiting for the server.
+     * @param player player to move
+     * @param server server to move to
+     * @param timeout maximum time to wait for the server to go online or null to wait forever
+     * @return connection request
+     */
+    public static CompletableFuture<ConnectionRequestBuilder.Result> switchServer(Player player, Server server, Duration timeout) {
+        record("switchServer");
         if (server == null) {
             throw new NullPointerException("No server provided!");
         }
 
-        if (server.hasStatus(ServerStatus.OFFLINE, ServerStatus.CRASHED, ServerStatus.LOADING, ServerStatus.STARTING, ServerStatus.PREPARING)) {
-            ServerStatusListener listener = watchServer(server);
-            if (server.hasStatus(ServerStatus.OFFLINE, ServerStatus.CRASHED)) {
-                server.start();
+        if (!server.hasStatus(ServerStatus.OFFLINE, ServerStatus.CRASHED, ServerStatus.LOADING, ServerStatus.STARTING, ServerStatus.PREPARING)) {
+            return movePlayer(player, server);
+        }
+
+        ApiScheduler.Priority priority = priority();
+        // subscribing waits for the API rate limit, so the waiter is registered on the plugin executor
+        CompletableFuture<CompletableFuture<Server>> waiting;
+        try {
+            waiting = CompletableFuture.supplyAsync(() -> ApiScheduler.supplyWithPriority(priority, () -> {
+                CompletableFuture<Server> waiter = watch(server, null).waitForStatus(ServerStatus.ONLINE);
+                if (server.hasStatus(ServerStatus.OFFLINE, ServerStatus.CRASHED)) {
+                    try {
+                        plugin.getApiScheduler().run(priority, ApiScheduler.Endpoint.START, server::start);
+                    } catch (APIException e) {
+                        waiter.cancel(false);
+                        throw new CompletionException(e);
+                    }
+                }
+                return waiter;
+            }), plugin.getAsyncExecutor());
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        CompletableFuture<Server> online = waiting.thenCompose(waiter -> waiter);
+        if (timeout != null) {
+            online = online.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        CompletableFuture<ConnectionRequestBuilder.Result> result = online.thenCompose(s -> movePlayer(player, s));
+        result.whenComplete((r, e) -> {
+            if (e != null) {
+                // stop waiting if the start failed, timed out or the caller cancelled the request
+                waiting.thenAccept(waiter -> waiter.cancel(false));
             }
+        });
+        return result;
+    }
+
+    /**
+     * find a server and send this player to it
+     * start the server or add it to the network if necessary
+     * this method doesn't block, see {@link #switchServer(Player, Server, Duration)}
+     * @param player player to move
+     * @param query server name, address, id or proxy name
+     * @param timeout maximum time to wait for the server to go online or null to wait forever
+     * @return connection request, completes exceptionally with a {@link NoSuchElementException} if the server wasn't found
+     */
+    public static CompletableFuture<ConnectionRequestBuilder.Result> switchServer(Player player, String query, Duration timeout) {
+        ApiScheduler.Priority priority = priority();
+        return CompletableFuture.supplyAsync(() -> {
             try {
-                server = listener.waitForStatus(ServerStatus.ONLINE).get();
-            } catch (ExecutionException e) {
-                throw new RuntimeException("Failed to start server", e);
+                Server server = ApiScheduler.callWithPriority(priority, () -> plugin.findServer(query, true));
+                if (server == null) {
+                    throw new NoSuchElementException("Server " + query + " wasn't found");
+                }
+                return server;
+            } catch (APIException e) {
+                throw new CompletionException(e);
             }
-        }
-
-        return movePlayer(player, server);
+        }, plugin.getAsyncExecutor()).thenCompose(server -> switchServer(player, server, timeout));
     }
 
     private static CompletableFuture<ConnectionRequestBuilder.Result> movePlayer(Player player, Server server) {
@@ -178,12 +318,233 @@ public class ExarotonPluginAPI {
 
         // add to proxy if needed
         if (plugin.getProxy().getServer(name).isEmpty()) {
-            plugin.getProxy().registerServer(plugin.constructServerInfo(name, server));
+            plugin.registerServer(plugin.constructServerInfo(name, server), server);
         }
         return player.createConnectionRequest(plugin.getProxy().getServer(name).get()).connect();
     }
 
 
+    /**
+     * maximum amount of servers processed at the same time by bulk methods
+     * requests are additionally limited by the API rate limit
+     */
+    public static final int BULK_PARALLELISM = 8;
+
+    /**
+     * find a server without blocking the calling thread
+     * the cached server list is used according to the cache settings
+     * @param query server name, address, id or proxy name
+     * @return found server or null
+     */
+    public static CompletableFuture<Server> findServerAsync(String query) {
+        return findServerAsync(query, -1);
+    }
+
+    /**
+     * find a server without blocking the calling thread
+     * completes immediately if the cached server list is recent enough, otherwise the list is fetched on the plugin
+     * executor. Concurrent requests share a single API request.
+     * @param query server name, address, id or proxy name
+     * @param maxAge maximum age of the cached server list in milliseconds or -1 to use the cache settings
+     * @return found server or null
+     */
+    public static CompletableFuture<Server> findServerAsync(String query, long maxAge) {
+        record("findServerAsync");
+        return registryAsync(maxAge).thenApply(registry -> plugin.findServer(registry, query));
+    }
+
+    /**
+     * find multiple servers in the same server list without blocking the calling thread
+     * @param queries server names, addresses, ids or proxy names
+     * @param maxAge maximum age of the cached server list in milliseconds or -1 to use the cache settings
+     * @return query -> found server in the order of the queries, servers that weren't found are missing
+     */
+    public static CompletableFuture<Map<String, Server>> findServersAsync(Collection<String> queries, long maxAge) {
+        record("findServersAsync");
+        List<String> list = List.copyOf(queries);
+        return registryAsync(maxAge).thenApply(registry -> {
+            Map<String, Server> result = new LinkedHashMap<>();
+            for (String query : list) {
+                Server server = plugin.findServer(registry, query);
+                if (server != null) {
+                    result.put(query, server);
+                }
+            }
+            return result;
+        });
+    }
+
+    /**
+     * start a server and add it to the proxy on the plugin executor
+     * @param server server to start
+     * @return started successfully, see {@link #startServer(Server)}
+     */
+    public static CompletableFuture<Boolean> startServerAsync(Server server) {
+        record("startServerAsync");
+        return async(() -> start(server));
+    }
+
+    /**
+     * stop a server and remove it from the proxy on the plugin executor
+     * @param server server to stop
+     * @return stopped successfully, see {@link #stopServer(Server)}
+     */
+    public static CompletableFuture<Boolean> stopServerAsync(Server server) {
+        record("stopServerAsync");
+        return async(() -> stop(server));
+    }
+
+    /**
+     * restart a server on the plugin executor
+     * @param server server to restart
+     * @return restarted successfully, see {@link #restartServer(Server)}
+     */
+    public static CompletableFuture<Boolean> restartServerAsync(Server server) {
+        record("restartServerAsync");
+        return async(() -> restart(server));
+    }
+
+    /**
+     * watch a server and add it to the proxy if it's online on the plugin executor
+     * @param server server to add
+     * @return was it added, see {@link #addServer(Server)}
+     */
+    public static CompletableFuture<Boolean> addServerAsync(Server server) {
+        record("addServerAsync");
+        return async(() -> add(server));
+    }
+
+    /**
+     * watch a server on the plugin executor
+     * @param server server to watch
+     * @return status listener, see {@link #watchServer(Server)}
+     */
+    public static CompletableFuture<ServerStatusListener> watchServerAsync(Server server) {
+        record("watchServerAsync");
+        return async(() -> watch(server));
+    }
+
+    /**
+     * start multiple servers, see {@link #startServer(Server)}
+     * @param servers servers to start
+     * @return results in the order of the servers, failures are reported per server
+     */
+    public static CompletableFuture<List<BatchRunner.Result<Server, Boolean>>> startServersAsync(Collection<Server> servers) {
+        record("startServersAsync");
+        return bulk(servers, ExarotonPluginAPI::start);
+    }
+
+    /**
+     * stop multiple servers, see {@link #stopServer(Server)}
+     * @param servers servers to stop
+     * @return results in the order of the servers, failures are reported per server
+     */
+    public static CompletableFuture<List<BatchRunner.Result<Server, Boolean>>> stopServersAsync(Collection<Server> servers) {
+        record("stopServersAsync");
+        return bulk(servers, ExarotonPluginAPI::stop);
+    }
+
+    /**
+     * restart multiple servers, see {@link #restartServer(Server)}
+     * @param servers servers to restart
+     * @return results in the order of the servers, failures are reported per server
+     */
+    public static CompletableFuture<List<BatchRunner.Result<Server, Boolean>>> restartServersAsync(Collection<Server> servers) {
+        record("restartServersAsync");
+        return bulk(servers, ExarotonPluginAPI::restart);
+    }
+
+    /**
+     * add multiple servers, see {@link #addServer(Server)}
+     * @param servers servers to add
+     * @return results in the order of the servers, failures are reported per server
+     */
+    public static CompletableFuture<List<BatchRunner.Result<Server, Boolean>>> addServersAsync(Collection<Server> servers) {
+        record("addServersAsync");
+        return bulk(servers, ExarotonPluginAPI::add);
+    }
+
+    /**
+     * watch multiple servers, see {@link #watchServer(Server)}
+     * @param servers servers to watch
+     * @return results in the order of the servers, failures are reported per server
+     */
+    public static CompletableFuture<List<BatchRunner.Result<Server, ServerStatusListener>>> watchServersAsync(Collection<Server> servers) {
+        record("watchServersAsync");
+        return bulk(servers, ExarotonPluginAPI::watch);
+    }
+
+    /**
+     * @param maxAge maximum age of the cached server list in milliseconds or -1 to use the cache settings
+     * @return cached server list if it is recent enough, otherwise a server list fetched on the plugin executor
+     */
+    private static CompletableFuture<ServerRegistry> registryAsync(long maxAge) {
+        ServerRegistry cached = plugin.getFreshServerRegistry(maxAge);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        return async(() -> plugin.getServerRegistry(maxAge));
+    }
+
+    /**
+     * run an API call on the plugin executor with the priority of the calling thread
+     * @param call API call
+     * @param <T> result type
+     * @return result
+     */
+    private static <T> CompletableFuture<T> async(ApiScheduler.ApiCall<T> call) {
+        ApiScheduler.Priority priority = priority();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return ApiScheduler.callWithPriority(priority, call);
+                } catch (APIException e) {
+                    throw new CompletionException(e);
+                }
+            }, plugin.getAsyncExecutor());
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * run a task for multiple servers on the plugin executor with the priority of the calling thread
+     * @param servers servers
+     * @param task task
+     * @param <R> result type
+     * @return results in the order of the servers
+     */
+    private static <R> CompletableFuture<List<BatchRunner.Result<Server, R>>> bulk(Collection<Server> servers, ServerTask<R> task) {
+        ApiScheduler.Priority priority = priority();
+        try {
+            return BatchRunner.run(servers, BULK_PARALLELISM, plugin.getAsyncExecutor(),
+                    server -> ApiScheduler.callWithPriority(priority, () -> task.run(server)));
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface ServerTask<R> {
+        R run(Server server) throws APIException;
+    }
+
+    /**
+     * requests made through the API use the API priority unless they come from a command
+     * @return request priority
+     */
+    private static ApiScheduler.Priority priority() {
+        return ApiScheduler.currentPriority() == ApiScheduler.Priority.INTERACTIVE ?
+                ApiScheduler.Priority.INTERACTIVE : ApiScheduler.Priority.API;
+    }
+
+    /**
+     * @param method called API method
+     */
+    private static void record(String method) {
+        plugin.getMetrics().pluginApiCalls.increment(method);
+    }
+
     static void setPlugin(ExarotonPlugin plugin) {
         ExarotonPluginAPI.plugin = plugin;
     }
@@ -0,0 +1,44 @@
+package com.exaroton.velocity;
+
+import com.exaroton.api.server.Server;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+
+/**
+ * fired when the plugin adds an exaroton server to the proxy
+ * the event is fired asynchronously, the server can already be connected to.
+ */
+public final class ExarotonServerRegisteredEvent {
+
+    private final Server server;
+
+    private final RegisteredServer registeredServer;
+
+    /**
+     * @param server exaroton server
+     * @param registeredServer server in the proxy
+     */
+    public ExarotonServerRegisteredEvent(Server server, RegisteredServer registeredServer) {
+        this.server = server;
+        this.registeredServer = registeredServer;
+    }
+
+    /**
+     * @return exaroton server
+     */
+    public Server getServer() {
+        return server;
+    }
+
+    /**
+     * @return server in the proxy
+     */
+    public RegisteredServer getRegisteredServer() {
+        return registeredServer;
+    }
+
+    @Override
+    public String toString() {
+        return "ExarotonServerRegisteredEvent{server=" + server.getAddress()
+                + ", registeredServer=" + registeredServer.getServerInfo().getName() + "}";
+    }
+}
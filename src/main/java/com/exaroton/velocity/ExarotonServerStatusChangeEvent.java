@@ -0,0 +1,80 @@
+package com.exaroton.velocity;
+
+import com.exaroton.api.server.Server;
+
+/**
+ * fired when the status of a subscribed exaroton server changes
+ * the event is fired asynchronously after the plugin has updated its cache and the proxy server list.
+ */
+public final class ExarotonServerStatusChangeEvent {
+
+    private final Server oldServer;
+
+    private final Server newServer;
+
+    private final String proxyName;
+
+    private final boolean synthetic;
+
+    /**
+     * @param oldServer previous server state
+     * @param newServer new server state
+     * @param proxyName name of the server in the proxy
+     * @param synthetic was the change detected by comparing with the API instead of received from the websocket
+     */
+    public ExarotonServerStatusChangeEvent(Server oldServer, Server newServer, String proxyName, boolean synthetic) {
+        this.oldServer = oldServer;
+        this.newServer = newServer;
+        this.proxyName = proxyName;
+        this.synthetic = synthetic;
+    }
+
+    /**
+     * @return previous server state
+     */
+    public Server getOldServer() {
+        return oldServer;
+    }
+
+    /**
+     * @return new server state
+     */
+    public Server getServer() {
+        return newServer;
+    }
+
+    /**
+     * @return previous status code (see {@link com.exaroton.api.server.ServerStatus})
+     */
+    public int getOldStatus() {
+        return oldServer.getStatus();
+    }
+
+    /**
+     * @return new status code (see {@link com.exaroton.api.server.ServerStatus})
+     */
+    public int getStatus() {
+        return newServer.getStatus();
+    }
+
+    /**
+     * @return name of the server in the proxy
+     */
+    public String getProxyName() {
+        return proxyName;
+    }
+
+    /**
+     * intermediate statuses may have been skipped for synthetic changes
+     * @return was the change detected by comparing with the API instead of received from the websocket
+     */
+    public boolean isSynthetic() {
+        return synthetic;
+    }
+
+    @Override
+    public String toString() {
+        return "ExarotonServerStatusChangeEvent{server=" + newServer.getAddress() + ", proxyName=" + proxyName
+                + ", oldStatus=" + getOldStatus() + ", status=" + getStatus() + ", synthetic=" + synthetic + "}";
+    }
+}
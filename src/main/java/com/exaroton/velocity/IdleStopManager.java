@@ -0,0 +1,193 @@
+package com.exaroton.velocity;
+
+import com.exaroton.api.APIException;
+import com.exaroton.api.server.Server;
+import com.exaroton.api.server.ServerStatus;
+import com.velocitypowered.api.event.Subscribe;
+import com.velocitypowered.api.event.connection.DisconnectEvent;
+import com.velocitypowered.api.event.player.ServerConnectedEvent;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import org.slf4j.Logger;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * stop watched servers after they have been empty for a while
+ * player counts are tracked from connection events, deadlines are kept in a timer wheel
+ */
+public class IdleStopManager {
+
+    private final ExarotonPlugin plugin;
+
+    private final Logger logger;
+
+    /**
+     * time without players after which a server is stopped in milliseconds, unless the server overrides it
+     */
+    private volatile long idleTimeout;
+
+    /**
+     * idle deadlines
+     */
+    private final TimerWheel wheel = new TimerWheel(TimeUnit.SECONDS.toMillis(1), 512);
+
+    /**
+     * proxy server name -> connected players
+     */
+    private final Map<String, Integer> players = new ConcurrentHashMap<>();
+
+    /**
+     * proxy server name -> idle deadline
+     */
+    private final Map<String, TimerWheel.Timeout> deadlines = new ConcurrentHashMap<>();
+
+    /**
+     * @param plugin exaroton plugin
+     * @param idleTimeout time without players after which a server is stopped in milliseconds
+     */
+    public IdleStopManager(ExarotonPlugin plugin, long idleTimeout) {
+        this.plugin = plugin;
+        this.logger = plugin.getLogger();
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * change the idle timeout, pending deadlines keep their time
+     * @param idleTimeout time without players after which a server is stopped in milliseconds
+     */
+    public void setIdleTimeout(long idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * start advancing the timer wheel
+     * the wheel follows the clock, so deadlines don't stretch if the scheduler runs late
+     */
+    public void start() {
+        plugin.getProxy().getScheduler().buildTask(plugin, () -> wheel.advanceTo(TimerWheel.now()))
+                .repeat(wheel.getTickDuration(), TimeUnit.MILLISECONDS)
+                .schedule();
+    }
+
+    @Subscribe
+    public void onServerConnected(ServerConnectedEvent event) {
+        event.getPreviousServer().ifPresent(this::playerLeft);
+        String name = event.getServer().getServerInfo().getName();
+        players.merge(name, 1, Integer::sum);
+        TimerWheel.Timeout deadline = deadlines.remove(name);
+        if (deadline != null) {
+            deadline.cancel();
+        }
+    }
+
+    @Subscribe
+    public void onDisconnect(DisconnectEvent event) {
+        event.getPlayer().getCurrentServer().ifPresent(connection -> this.playerLeft(connection.getServer()));
+    }
+
+    /**
+     * @param server server a player left
+     */
+    private void playerLeft(RegisteredServer server) {
+        String name = server.getServerInfo().getName();
+        Integer count = players.computeIfPresent(name, (key, value) -> value <= 1 ? null : value - 1);
+        if (count == null) {
+            ServerStatusListener listener = plugin.findStatusListenerByProxyName(name);
+            if (listener != null) {
+                this.track(listener);
+            }
+        }
+    }
+
+    /**
+     * schedule the idle deadline for a watched server if it is online and empty
+     * @param listener status listener of the server
+     */
+    public void track(ServerStatusListener listener) {
+        String name = listener.getProxyName();
+        if (!listener.getServer().hasStatus(ServerStatus.ONLINE) || players.containsKey(name) || !this.isWatched(listener)) {
+            return;
+        }
+        long timeout = this.getIdleTimeout(listener.getServer(), name);
+        deadlines.computeIfAbsent(name, key -> wheel.schedule(timeout, () -> this.expire(key)));
+    }
+
+    /**
+     * update the idle deadline after a status change
+     * @param listener status listener of the server
+     * @param newServer new server state
+     */
+    public void statusUpdate(ServerStatusListener listener, Server newServer) {
+        if (newServer.hasStatus(ServerStatus.ONLINE)) {
+            this.track(listener);
+            return;
+        }
+        TimerWheel.Timeout deadline = deadlines.remove(listener.getProxyName());
+        if (deadline != null) {
+            deadline.cancel();
+        }
+    }
+
+    /**
+     * only servers the proxy watches are stopped: servers from the velocity config and servers that are explicitly
+     * watched (watch-servers, auto-start, /exaroton add, plugin API). Servers that were only started or stopped
+     * through a command or the API are left alone.
+     * @param listener status listener of the server
+     * @return is the server watched by the proxy
+     */
+    private boolean isWatched(ServerStatusListener listener) {
+        return listener.getReferenceCount() > 0 || plugin.findServerName(listener.getServer().getAddress()) != null;
+    }
+
+    /**
+     * @param server exaroton server
+     * @param name server name in the proxy
+     * @return idle timeout of the server in milliseconds
+     */
+    private long getIdleTimeout(Server server, String name) {
+        return plugin.getServerConfig().getIdleTimeout(server, name, idleTimeout);
+    }
+
+    /**
+     * @param name server name in the proxy
+     * @return does the server have players or a pending idle deadline
+     */
+    public boolean isTracking(String name) {
+        return players.containsKey(name) || deadlines.containsKey(name);
+    }
+
+    /**
+     * @return amount of pending idle deadlines
+     */
+    public int getPendingCount() {
+        return deadlines.size();
+    }
+
+    /**
+     * stop a server that has been empty for the idle timeout
+     * @param name server name in the proxy
+     */
+    private void expire(String name) {
+        deadlines.remove(name);
+        if (players.containsKey(name)) {
+            return;
+        }
+        ServerStatusListener listener = plugin.findStatusListenerByProxyName(name);
+        if (listener == null || !listener.getServer().hasStatus(ServerStatus.ONLINE) || !this.isWatched(listener)) {
+            return;
+        }
+
+        Server server = listener.getServer();
+        logger.info("Stopping {} after {} seconds without players", name,
+                TimeUnit.MILLISECONDS.toSeconds(this.getIdleTimeout(server, name)));
+        plugin.getAsyncExecutor().execute(() -> {
+            try {
+                plugin.getApiScheduler().run(ApiScheduler.Priority.BACKGROUND, ApiScheduler.Endpoint.STOP, server::stop);
+            } catch (APIException e) {
+                logger.error("Failed to stop idle server {}", name, e);
+            }
+        });
+    }
+}
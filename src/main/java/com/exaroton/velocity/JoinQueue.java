@@ -0,0 +1,406 @@
+package com.exaroton.velocity;
+
+import com.exaroton.api.APIException;
+import com.exaroton.api.server.Server;
+import com.exaroton.api.server.ServerStatus;
+import com.velocitypowered.api.event.Subscribe;
+import com.velocitypowered.api.event.connection.DisconnectEvent;
+import com.velocitypowered.api.event.player.ServerConnectedEvent;
+import com.velocitypowered.api.event.player.ServerPreConnectEvent;
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import com.velocitypowered.api.scheduler.ScheduledTask;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * hold players that connect to an offline exaroton server on a fallback server,
+ * start the server and move the players in batches once it is online
+ */
+public class JoinQueue {
+
+    /**
+     * result of {@link ServerQueue#add(Player)} if the server is online and the queue was released
+     */
+    private static final int RELEASED = -1;
+
+    /**
+     * result of {@link ServerQueue#add(Player)} if the server failed to start
+     */
+    private static final int FAILED = -2;
+
+    private final ExarotonPlugin plugin;
+
+    private final Logger logger;
+
+    /**
+     * name of the server players wait on
+     */
+    private final String fallbackServer;
+
+    /**
+     * amount of players moved at once
+     */
+    private final int batchSize;
+
+    /**
+     * time between batches in milliseconds
+     */
+    private final long batchInterval;
+
+    /**
+     * server id -> queue
+     */
+    private final Map<String, ServerQueue> queues = new ConcurrentHashMap<>();
+
+    /**
+     * server id -> duration of the last observed start in milliseconds
+     */
+    private final Map<String, Long> startDurations = new ConcurrentHashMap<>();
+
+    /**
+     * @param plugin exaroton plugin
+     * @param fallbackServer name of the server players wait on, unless the server overrides it
+     * @param batchSize amount of players moved at once
+     * @param batchInterval time between batches in milliseconds
+     */
+    public JoinQueue(ExarotonPlugin plugin, String fallbackServer, int batchSize, long batchInterval) {
+        this.plugin = plugin;
+        this.logger = plugin.getLogger();
+        this.fallbackServer = fallbackServer;
+        this.batchSize = Math.max(1, batchSize);
+        this.batchInterval = Math.max(0, batchInterval);
+    }
+
+    @Subscribe
+    public void onServerPreConnect(ServerPreConnectEvent event) {
+        if (!event.getResult().isAllowed()) {
+            return;
+        }
+        Optional<RegisteredServer> target = event.getResult().getServer();
+        if (target.isEmpty()) {
+            return;
+        }
+
+        String name = target.get().getServerInfo().getName();
+        ServerStatusListener listener = plugin.findStatusListenerByProxyName(name);
+        if (listener == null || listener.getServer().hasStatus(ServerStatus.ONLINE)) {
+            return;
+        }
+
+        Player player = event.getPlayer();
+        ServerQueue queue = this.getQueue(listener, name);
+        int position = queue.add(player);
+        if (position == RELEASED) {
+            // the server just came online
+            return;
+        }
+        if (position == FAILED) {
+            player.sendMessage(Message.error("Server " + name + " failed to start."));
+        }
+        else {
+            // a player only waits for one server at a time
+            this.removeFromQueues(player, queue);
+            player.sendMessage(Message.queued(name, position, this.estimateWait(queue, position)));
+        }
+
+        if (player.getCurrentServer().isPresent()) {
+            event.setResult(ServerPreConnectEvent.ServerResult.denied());
+            return;
+        }
+
+        String fallbackServer = this.getFallbackServer(listener, name);
+        Optional<RegisteredServer> fallback = plugin.getProxy().getServer(fallbackServer);
+        if (fallback.isPresent() && !fallback.get().getServerInfo().getName().equals(name)) {
+            event.setResult(ServerPreConnectEvent.ServerResult.allowed(fallback.get()));
+        }
+        else {
+            logger.warn("Join queue fallback server {} is not registered", fallbackServer);
+            event.setResult(ServerPreConnectEvent.ServerResult.denied());
+        }
+    }
+
+    @Subscribe
+    public void onServerConnected(ServerConnectedEvent event) {
+        String connected = event.getServer().getServerInfo().getName();
+        for (ServerQueue queue : queues.values()) {
+            // players wait on the fallback server, connecting to any other server leaves the queue
+            if (!connected.equals(queue.name) && !connected.equals(this.getFallbackServer(queue.listener, queue.name))) {
+                queue.remove(event.getPlayer());
+            }
+        }
+    }
+
+    @Subscribe
+    public void onDisconnect(DisconnectEvent event) {
+        this.removeFromQueues(event.getPlayer(), null);
+    }
+
+    /**
+     * remove a player from all queues
+     * @param player player to remove
+     * @param except queue the player stays in or null
+     */
+    private void removeFromQueues(Player player, ServerQueue except) {
+        for (ServerQueue queue : queues.values()) {
+            if (queue != except) {
+                queue.remove(player);
+            }
+        }
+    }
+
+    /**
+     * @param listener status listener of the server
+     * @param name server name in the proxy
+     * @return name of the server players wait on
+     */
+    private String getFallbackServer(ServerStatusListener listener, String name) {
+        return plugin.getServerConfig().getFallbackServer(listener.getServer(), name, this.fallbackServer);
+    }
+
+    /**
+     * get or create the queue for a server
+     * @param listener status listener of the server
+     * @param name server name in the proxy
+     * @return server queue
+     */
+    private ServerQueue getQueue(ServerStatusListener listener, String name) {
+        String id = listener.getServer().getId();
+        ServerQueue queue = queues.get(id);
+        if (queue == null) {
+            ServerQueue created = new ServerQueue(listener, name);
+            queue = queues.putIfAbsent(id, created);
+            if (queue == null) {
+                queue = created;
+                created.activate();
+            }
+        }
+        return queue;
+    }
+
+    /**
+     * @return amount of queued players for all servers
+     */
+    public int size() {
+        int size = 0;
+        for (ServerQueue queue : queues.values()) {
+            size += queue.size();
+        }
+        return size;
+    }
+
+    /**
+     * estimate the time until a player is moved
+     * @param queue server queue
+     * @param position position in the queue (1 based)
+     * @return estimated wait time in seconds or -1 if unknown
+     */
+    private long estimateWait(ServerQueue queue, int position) {
+        long batches = (position - 1) / batchSize;
+        long wait = batches * batchInterval;
+        if (!queue.online) {
+            Long startDuration = startDurations.get(queue.listener.getServer().getId());
+            if (startDuration == null) {
+                return -1;
+            }
+            wait += Math.max(0, startDuration - (System.currentTimeMillis() - queue.createdAt));
+        }
+        return TimeUnit.MILLISECONDS.toSeconds(wait);
+    }
+
+    private final class ServerQueue {
+        private final ServerStatusListener listener;
+        private final String name;
+        private final long createdAt = System.currentTimeMillis();
+        private final LinkedHashSet<Player> players = new LinkedHashSet<>();
+        private volatile boolean online = false;
+        private boolean closed = false;
+        private boolean failed = false;
+        private ScheduledTask releaseTask;
+
+        /**
+         * status waiter the queue is currently waiting on
+         */
+        private CompletableFuture<Server> waiter;
+
+        private ServerQueue(ServerStatusListener listener, String name) {
+            this.listener = listener;
+            this.name = name;
+        }
+
+        /**
+         * start the server and wait until it is online
+         * a server that is stopping is started once it is offline
+         */
+        private void activate() {
+            if (!listener.getServer().hasStatus(ServerStatus.STOPPING, ServerStatus.SAVING)) {
+                this.waitForOnline();
+                return;
+            }
+
+            logger.info("Waiting for {} to stop before starting it for queued players", name);
+            CompletableFuture<Server> stopped = listener.waitForStatus(null, ServerStatus.OFFLINE, ServerStatus.CRASHED);
+            if (!this.setWaiter(stopped)) {
+                return;
+            }
+            stopped.whenComplete((server, e) -> {
+                if (e != null) {
+                    this.fail();
+                }
+                else {
+                    this.waitForOnline();
+                }
+            });
+        }
+
+        /**
+         * start the server if it is offline and wait until it is online
+         */
+        private void waitForOnline() {
+            CompletableFuture<Server> online = listener.waitForStatus(ServerStatus.ONLINE);
+            if (!this.setWaiter(online)) {
+                return;
+            }
+            online.whenComplete((server, e) -> {
+                if (e != null) {
+                    this.fail();
+                }
+                else {
+                    startDurations.put(server.getId(), System.currentTimeMillis() - createdAt);
+                    this.online = true;
+                    this.scheduleRelease();
+                }
+            });
+            this.start();
+        }
+
+        /**
+         * @param future status waiter the queue waits on next
+         * @return is the queue still open, the waiter is cancelled otherwise
+         */
+        private boolean setWaiter(CompletableFuture<Server> future) {
+            synchronized (this) {
+                if (!closed) {
+                    this.waiter = future;
+                    return true;
+                }
+            }
+            future.cancel(false);
+            return false;
+        }
+
+        /**
+         * start the server if it is offline
+         */
+        private void start() {
+            Server server = listener.getServer();
+            if (!server.hasStatus(ServerStatus.OFFLINE, ServerStatus.CRASHED)) {
+                return;
+            }
+            logger.info("Starting {} for queued players", name);
+            plugin.getAsyncExecutor().execute(() -> {
+                try {
+                    plugin.getApiScheduler().run(ApiScheduler.Priority.INTERACTIVE, ApiScheduler.Endpoint.START, server::start);
+                } catch (APIException e) {
+                    logger.error("Failed to start {} for queued players", name, e);
+                    this.fail();
+                }
+            });
+        }
+
+        /**
+         * @param player player to add
+         * @return position in the queue (1 based), {@link #RELEASED} if the server is online
+         *         or {@link #FAILED} if the server failed to start
+         */
+        private synchronized int add(Player player) {
+            if (closed) {
+                return failed ? FAILED : RELEASED;
+            }
+            players.add(player);
+            int position = 1;
+            for (Player queued : players) {
+                if (queued.equals(player)) {
+                    break;
+                }
+                position++;
+            }
+            return position;
+        }
+
+        private synchronized void remove(Player player) {
+            players.remove(player);
+        }
+
+        private synchronized int size() {
+            return players.size();
+        }
+
+        private synchronized List<Player> poll(int amount) {
+            List<Player> batch = new ArrayList<>(amount);
+            var iterator = players.iterator();
+            while (iterator.hasNext() && batch.size() < amount) {
+                batch.add(iterator.next());
+                iterator.remove();
+            }
+            return batch;
+        }
+
+        private synchronized void scheduleRelease() {
+            releaseTask = plugin.getProxy().getScheduler().buildTask(plugin, this::releaseBatch)
+                    .repeat(Math.max(1, batchInterval), TimeUnit.MILLISECONDS)
+                    .schedule();
+        }
+
+        /**
+         * move the next batch of players to the server
+         */
+        private void releaseBatch() {
+            Optional<RegisteredServer> server = plugin.getProxy().getServer(name);
+            List<Player> batch = this.poll(batchSize);
+            for (Player player : batch) {
+                if (player.isActive() && server.isPresent()) {
+                    player.createConnectionRequest(server.get()).fireAndForget();
+                }
+            }
+
+            synchronized (this) {
+                if (players.isEmpty()) {
+                    closed = true;
+                    releaseTask.cancel();
+                    queues.remove(listener.getServer().getId(), this);
+                }
+            }
+        }
+
+        /**
+         * notify and remove all players after the server failed to start
+         */
+        private void fail() {
+            CompletableFuture<Server> pending;
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                failed = true;
+                pending = this.waiter;
+            }
+            if (pending != null) {
+                pending.cancel(false);
+            }
+            queues.remove(listener.getServer().getId(), this);
+            for (Player player : this.poll(Integer.MAX_VALUE)) {
+                player.sendMessage(Message.error("Server " + name + " failed to start."));
+            }
+        }
+    }
+}
@@ -7,6 +7,8 @@ import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer;
 
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import static net.kyori.adventure.text.Component.text;
 
@@ -41,6 +43,15 @@ public class Message {
                 .build();
     }
 
+    /**
+     * the circuit breaker is open
+     * @param retryIn time in milliseconds until the API is tried again
+     */
+    public static Component apiUnavailable(long retryIn) {
+        return Message.error("The exaroton API is currently unavailable. Try again in "
+                + TimeUnit.MILLISECONDS.toSeconds(retryIn + 999) + " seconds.");
+    }
+
     /**
      * @param message error message
      */
@@ -138,10 +149,47 @@ public class Message {
         return text.build();
     }
 
+    /**
+     * list statistics
+     * @param stats statistic name -> value
+     */
+    public static Component stats(Map<String, String> stats) {
+        final TextComponent.Builder text = prefix()
+                .append(text("Statistics:", NamedTextColor.GRAY));
+        for (Map.Entry<String, String> entry : stats.entrySet()) {
+            text.append(
+                    Component.newline(),
+                    text("- ", NamedTextColor.GRAY),
+                    text(entry.getKey(), NamedTextColor.GREEN),
+                    text(": ", NamedTextColor.GREEN),
+                    text(entry.getValue())
+            );
+        }
+        return text.build();
+    }
+
     public static String getFullString(Component component) {
         return PlainTextComponentSerializer.plainText().serialize(component);
     }
 
+    /**
+     * show that this player is waiting for a server to start
+     * @param serverName server name in network
+     * @param position position in the queue
+     * @param eta estimated wait time in seconds or -1 if unknown
+     * @return message
+     */
+    public static Component queued(String serverName, int position, long eta) {
+        return prefix()
+                .append(text("Server "))
+                .append(text(serverName, NamedTextColor.GREEN))
+                .append(text(" is starting. You are "))
+                .append(text("#" + position, NamedTextColor.GREEN))
+                .append(text(" in the queue"))
+                .append(text(eta < 0 ? "." : ", estimated wait: " + eta + "s."))
+                .build();
+    }
+
     /**
      * show that this player is being moved to a server
      * @param serverName server name in network
@@ -0,0 +1,388 @@
+package com.exaroton.velocity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/**
+ * plugin metrics (counters, gauges and latency histograms)
+ * all values can be exported in the prometheus text format
+ */
+public class Metrics {
+
+    /**
+     * all metrics in registration order
+     */
+    private final List<Metric> metrics = new CopyOnWriteArrayList<>();
+
+    /**
+     * API requests by endpoint and result
+     */
+    public final Counter apiRequests = this.register(new Counter("exaroton_api_requests_total",
+            "exaroton API requests", "endpoint", "result"));
+
+    /**
+     * API request latency by endpoint (without time spent waiting for the rate limit)
+     */
+    public final Histogram apiLatency = this.register(new Histogram("exaroton_api_request_duration_seconds",
+            "exaroton API request latency", new double[]{.01, .025, .05, .1, .25, .5, 1, 2.5, 5, 10, 30}, "endpoint"));
+
+    /**
+     * server list lookups by result (hit, stale, miss)
+     */
+    public final Counter cacheLookups = this.register(new Counter("exaroton_cache_lookups_total",
+            "server list cache lookups", "result"));
+
+    /**
+     * tab completion time
+     */
+    public final Histogram completionTime = this.register(new Histogram("exaroton_tab_completion_duration_seconds",
+            "tab completion time", new double[]{.0001, .0005, .001, .005, .01, .05, .1, .5, 1, 5}));
+
+    /**
+     * status transitions by new status and source (websocket, resync)
+     */
+    public final Counter transitions = this.register(new Counter("exaroton_status_transitions_total",
+            "server status transitions", "status", "source"));
+
+    /**
+     * time from leaving the offline status until a server is online
+     */
+    public final Histogram startTime = this.register(new Histogram("exaroton_server_start_duration_seconds",
+            "time from start until a server is online", new double[]{10, 20, 30, 45, 60, 90, 120, 180, 300, 600}));
+
+    /**
+     * plugin API calls by method
+     */
+    public final Counter pluginApiCalls = this.register(new Counter("exaroton_plugin_api_calls_total",
+            "calls to the plugin API by other plugins", "method"));
+
+    /**
+     * register a gauge
+     * @param name metric name
+     * @param help description
+     * @param value current value
+     */
+    public void gauge(String name, String help, DoubleSupplier value) {
+        this.register(new Gauge(name, help, value));
+    }
+
+    private <T extends Metric> T register(T metric) {
+        metrics.add(metric);
+        return metric;
+    }
+
+    /**
+     * @return all metrics in registration order
+     */
+    public List<Metric> getMetrics() {
+        return Collections.unmodifiableList(metrics);
+    }
+
+    /**
+     * @return all metrics in the prometheus text format
+     */
+    public String toPrometheus() {
+        StringBuilder out = new StringBuilder();
+        for (Metric metric : metrics) {
+            out.append("# HELP ").append(metric.name).append(' ').append(metric.help).append('\n');
+            out.append("# TYPE ").append(metric.name).append(' ').append(metric.getType()).append('\n');
+            metric.write(out);
+        }
+        return out.toString();
+    }
+
+    /**
+     * format a value for the prometheus text format
+     * @param value value
+     * @return formatted value
+     */
+    private static String format(double value) {
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "+Inf" : "-Inf";
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    public static abstract class Metric {
+        private final String name;
+        private final String help;
+        private final String[] labelNames;
+
+        private Metric(String name, String help, String[] labelNames) {
+            this.name = name;
+            this.help = help;
+            this.labelNames = labelNames;
+        }
+
+        /**
+         * @return metric name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return description
+         */
+        public String getHelp() {
+            return help;
+        }
+
+        /**
+         * @return prometheus metric type
+         */
+        protected abstract String getType();
+
+        /**
+         * write all samples of this metric
+         * @param out output
+         */
+        protected abstract void write(StringBuilder out);
+
+        /**
+         * @param labelValues label values
+         * @param extraName name of an additional label or null
+         * @param extraValue value of the additional label
+         * @return labels in the prometheus text format or an empty string
+         */
+        protected String labels(List<String> labelValues, String extraName, String extraValue) {
+            if (labelNames.length == 0 && extraName == null) {
+                return "";
+            }
+            StringBuilder labels = new StringBuilder("{");
+            for (int i = 0; i < labelNames.length; i++) {
+                if (i > 0) {
+                    labels.append(',');
+                }
+                labels.append(labelNames[i]).append("=\"").append(escape(labelValues.get(i))).append('"');
+            }
+            if (extraName != null) {
+                if (labelNames.length > 0) {
+                    labels.append(',');
+                }
+                labels.append(extraName).append("=\"").append(extraValue).append('"');
+            }
+            return labels.append('}').toString();
+        }
+
+        /**
+         * @param labelValues label values
+         * @return label values as a map key
+         */
+        protected List<String> key(String[] labelValues) {
+            if (labelValues.length != labelNames.length) {
+                throw new IllegalArgumentException("Expected " + labelNames.length + " labels for " + name);
+            }
+            return Arrays.asList(labelValues);
+        }
+
+        private static String escape(String value) {
+            return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+        }
+    }
+
+    public static final class Counter extends Metric {
+        private final Map<List<String>, LongAdder> values = new ConcurrentHashMap<>();
+
+        private Counter(String name, String help, String... labelNames) {
+            super(name, help, labelNames);
+        }
+
+        /**
+         * @param labelValues label values
+         */
+        public void increment(String... labelValues) {
+            values.computeIfAbsent(key(labelValues), k -> new LongAdder()).increment();
+        }
+
+        /**
+         * @param labelValues label values
+         * @return current value
+         */
+        public long get(String... labelValues) {
+            LongAdder value = values.get(key(labelValues));
+            return value == null ? 0 : value.sum();
+        }
+
+        /**
+         * @return current value of all label combinations
+         */
+        public Map<List<String>, Long> getAll() {
+            Map<List<String>, Long> result = new ConcurrentHashMap<>();
+            values.forEach((labels, value) -> result.put(labels, value.sum()));
+            return result;
+        }
+
+        @Override
+        protected String getType() {
+            return "counter";
+        }
+
+        @Override
+        protected void write(StringBuilder out) {
+            values.forEach((labels, value) -> out.append(getName()).append(labels(labels, null, null))
+                    .append(' ').append(value.sum()).append('\n'));
+        }
+    }
+
+    public static final class Gauge extends Metric {
+        private final DoubleSupplier value;
+
+        private Gauge(String name, String help, DoubleSupplier value) {
+            super(name, help, new String[0]);
+            this.value = value;
+        }
+
+        /**
+         * @return current value
+         */
+        public double get() {
+            return value.getAsDouble();
+        }
+
+        @Override
+        protected String getType() {
+            return "gauge";
+        }
+
+        @Override
+        protected void write(StringBuilder out) {
+            out.append(getName()).append(' ').append(format(this.get())).append('\n');
+        }
+    }
+
+    public static final class Histogram extends Metric {
+        /**
+         * upper bounds of the buckets in seconds
+         */
+        private final double[] bounds;
+
+        private final Map<List<String>, Values> values = new ConcurrentHashMap<>();
+
+        private Histogram(String name, String help, double[] bounds, String... labelNames) {
+            super(name, help, labelNames);
+            this.bounds = bounds;
+        }
+
+        /**
+         * record a duration
+         * @param nanos duration in nanoseconds
+         * @param labelValues label values
+         */
+        public void observeNanos(long nanos, String... labelValues) {
+            this.observe(nanos / 1e9, labelValues);
+        }
+
+        /**
+         * record a value
+         * @param seconds value in seconds
+         * @param labelValues label values
+         */
+        public void observe(double seconds, String... labelValues) {
+            Values data = values.computeIfAbsent(key(labelValues), k -> new Values(bounds.length));
+            int bucket = Arrays.binarySearch(bounds, seconds);
+            data.buckets[bucket < 0 ? -bucket - 1 : bucket].increment();
+            data.count.increment();
+            data.sum.add(seconds);
+        }
+
+        /**
+         * @param labelValues label values
+         * @return amount of recorded values
+         */
+        public long getCount(String... labelValues) {
+            Values data = values.get(key(labelValues));
+            return data == null ? 0 : data.count.sum();
+        }
+
+        /**
+         * @param labelValues label values
+         * @return average of the recorded values in seconds
+         */
+        public double getAverage(String... labelValues) {
+            Values data = values.get(key(labelValues));
+            long count = data == null ? 0 : data.count.sum();
+            return count == 0 ? 0 : data.sum.sum() / count;
+        }
+
+        /**
+         * estimate a quantile from the buckets
+         * @param quantile quantile (0-1)
+         * @param labelValues label values
+         * @return upper bound of the bucket containing the quantile in seconds (infinite if it is above all buckets)
+         */
+        public double getQuantile(double quantile, String... labelValues) {
+            Values data = values.get(key(labelValues));
+            long count = data == null ? 0 : data.count.sum();
+            if (count == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(quantile * count);
+            long seen = 0;
+            for (int i = 0; i < bounds.length; i++) {
+                seen += data.buckets[i].sum();
+                if (seen >= rank) {
+                    return bounds[i];
+                }
+            }
+            return Double.POSITIVE_INFINITY;
+        }
+
+        /**
+         * @return label values of all recorded label combinations
+         */
+        public List<List<String>> getLabelValues() {
+            return new ArrayList<>(values.keySet());
+        }
+
+        @Override
+        protected String getType() {
+            return "histogram";
+        }
+
+        @Override
+        protected void write(StringBuilder out) {
+            values.forEach((labels, data) -> {
+                long cumulative = 0;
+                for (int i = 0; i <= bounds.length; i++) {
+                    cumulative += data.buckets[i].sum();
+                    String le = i < bounds.length ? format(bounds[i]) : "+Inf";
+                    out.append(getName()).append("_bucket").append(labels(labels, "le", le))
+                            .append(' ').append(cumulative).append('\n');
+                }
+                out.append(getName()).append("_sum").append(labels(labels, null, null))
+                        .append(' ').append(String.format(Locale.ROOT, "%.6f", data.sum.sum())).append('\n');
+                out.append(getName()).append("_count").append(labels(labels, null, null))
+                        .append(' ').append(data.count.sum()).append('\n');
+            });
+        }
+
+        private static final class Values {
+            /**
+             * one bucket per bound and one for values above all bounds
+             */
+            private final LongAdder[] buckets;
+            private final LongAdder count = new LongAdder();
+            private final DoubleAdder sum = new DoubleAdder();
+
+            private Values(int bounds) {
+                buckets = new LongAdder[bounds + 1];
+                for (int i = 0; i < buckets.length; i++) {
+                    buckets[i] = new LongAdder();
+                }
+            }
+        }
+    }
+}
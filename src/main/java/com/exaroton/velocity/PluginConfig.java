@@ -0,0 +1,399 @@
+package com.exaroton.velocity;
+
+import com.moandjiezana.toml.Toml;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * parsed plugin configuration (config.toml)
+ * values are validated and converted once when the config is loaded, durations are stored in milliseconds.
+ * Instances are immutable, a reload creates a new instance.
+ */
+public final class PluginConfig {
+
+    private final String apiToken;
+    private final boolean autoReload;
+
+    private final boolean watchServers;
+    private final int watchConcurrency;
+
+    private final boolean autoStartEnabled;
+    private final int autoStartParallelism;
+    private final long autoStartStagger;
+
+    private final boolean autoStopEnabled;
+    private final long autoStopTimeout;
+
+    private final String cacheMode;
+    private final long cacheRefreshInterval;
+    private final boolean cacheSnapshot;
+
+    private final boolean joinQueueEnabled;
+    private final String joinQueueFallbackServer;
+    private final int joinQueueBatchSize;
+    private final long joinQueueBatchInterval;
+
+    private final boolean idleStopEnabled;
+    private final long idleStopTimeout;
+
+    private final int executorThreads;
+    private final int executorQueueSize;
+
+    private final double rateLimit;
+    private final int rateLimitBurst;
+
+    private final int retryAttempts;
+    private final long retryDelay;
+    private final long retryMaxDelay;
+
+    private final int circuitBreakerThreshold;
+    private final long circuitBreakerOpenTime;
+
+    private final long subscriptionIdleTimeout;
+    private final int maxSubscriptions;
+    private final long resyncInterval;
+    private final long reconnectDelay;
+    private final long maxReconnectDelay;
+
+    private final int metricsPort;
+    private final String metricsHost;
+
+    private final ServerConfig servers;
+
+    private PluginConfig(Toml config) {
+        this.apiToken = config.getString("apiToken");
+        this.autoReload = config.getBoolean("auto-reload", true);
+
+        this.watchServers = config.getBoolean("watch-servers", true);
+        this.watchConcurrency = Math.max(1, config.getLong("watch-concurrency", 8L).intValue());
+
+        this.autoStartEnabled = config.getBoolean("auto-start.enabled", false);
+        this.autoStartParallelism = Math.max(1, config.getLong("auto-start.parallelism", 4L).intValue());
+        this.autoStartStagger = Math.max(0, config.getLong("auto-start.stagger", 0L));
+
+        this.autoStopEnabled = config.getBoolean("auto-stop.enabled", false);
+        this.autoStopTimeout = seconds(Math.max(1, config.getLong("auto-stop.timeout", 30L)));
+
+        this.cacheMode = config.getString("cache.mode", "expire");
+        this.cacheRefreshInterval = seconds(Math.max(1, config.getLong("cache.refresh-interval", 60L)));
+        this.cacheSnapshot = config.getBoolean("cache.snapshot", true);
+
+        this.joinQueueEnabled = config.getBoolean("join-queue.enabled", false);
+        this.joinQueueFallbackServer = config.getString("join-queue.fallback-server", "lobby");
+        this.joinQueueBatchSize = config.getLong("join-queue.batch-size", 5L).intValue();
+        this.joinQueueBatchInterval = seconds(config.getLong("join-queue.batch-interval", 2L));
+
+        this.idleStopEnabled = config.getBoolean("idle-stop.enabled", false);
+        this.idleStopTimeout = seconds(Math.max(1, config.getLong("idle-stop.timeout", 600L)));
+
+        this.executorThreads = Math.max(1, config.getLong("executor.threads", 16L).intValue());
+        this.executorQueueSize = Math.max(1, config.getLong("executor.queue-size", 1000L).intValue());
+
+        this.rateLimit = Math.max(0.1, config.getDouble("rate-limit.requests-per-second", 10.0));
+        this.rateLimitBurst = Math.max(1, config.getLong("rate-limit.burst", 20L).intValue());
+
+        this.retryAttempts = Math.max(1, config.getLong("retry.attempts", 3L).intValue());
+        this.retryDelay = Math.max(0, config.getLong("retry.delay", 250L));
+        this.retryMaxDelay = Math.max(retryDelay, config.getLong("retry.max-delay", 2000L));
+
+        this.circuitBreakerThreshold = Math.max(1, config.getLong("circuit-breaker.failure-threshold", 5L).intValue());
+        this.circuitBreakerOpenTime = seconds(Math.max(1, config.getLong("circuit-breaker.open-time", 30L)));
+
+        this.subscriptionIdleTimeout = seconds(Math.max(1, config.getLong("subscriptions.idle-timeout", 300L)));
+        this.maxSubscriptions = Math.max(0, config.getLong("subscriptions.max", 100L).intValue());
+        this.resyncInterval = seconds(Math.max(0, config.getLong("subscriptions.resync-interval", 60L)));
+        this.reconnectDelay = seconds(Math.max(1, config.getLong("subscriptions.reconnect-delay", 5L)));
+        this.maxReconnectDelay = Math.max(reconnectDelay, seconds(config.getLong("subscriptions.max-reconnect-delay", 300L)));
+
+        this.metricsPort = (int) Math.max(0, Math.min(65535, config.getLong("metrics.port", 0L)));
+        this.metricsHost = config.getString("metrics.host", "127.0.0.1");
+
+        this.servers = ServerConfig.of(config);
+    }
+
+    /**
+     * parse a configuration
+     * @param config configuration with defaults
+     * @return parsed configuration
+     */
+    public static PluginConfig of(Toml config) {
+        return new PluginConfig(config);
+    }
+
+    private static long seconds(long seconds) {
+        return TimeUnit.SECONDS.toMillis(seconds);
+    }
+
+    /**
+     * @param other previous configuration
+     * @return do settings differ that can only be applied by restarting the proxy
+     */
+    public boolean requiresRestart(PluginConfig other) {
+        return !Objects.equals(apiToken, other.apiToken)
+                || autoReload != other.autoReload
+                || cacheSnapshot != other.cacheSnapshot
+                || joinQueueEnabled != other.joinQueueEnabled
+                || !Objects.equals(joinQueueFallbackServer, other.joinQueueFallbackServer)
+                || joinQueueBatchSize != other.joinQueueBatchSize
+                || joinQueueBatchInterval != other.joinQueueBatchInterval
+                || idleStopEnabled != other.idleStopEnabled
+                || executorThreads != other.executorThreads
+                || executorQueueSize != other.executorQueueSize
+                || retryAttempts != other.retryAttempts
+                || retryDelay != other.retryDelay
+                || retryMaxDelay != other.retryMaxDelay
+                || circuitBreakerThreshold != other.circuitBreakerThreshold
+                || circuitBreakerOpenTime != other.circuitBreakerOpenTime
+                || resyncInterval != other.resyncInterval
+                || reconnectDelay != other.reconnectDelay
+                || maxReconnectDelay != other.maxReconnectDelay
+                || metricsPort != other.metricsPort
+                || !Objects.equals(metricsHost, other.metricsHost);
+    }
+
+    /**
+     * @return exaroton API token
+     */
+    public String getApiToken() {
+        return apiToken;
+    }
+
+    /**
+     * @return reload the configuration when the file changes
+     */
+    public boolean isAutoReload() {
+        return autoReload;
+    }
+
+    /**
+     * @return watch exaroton servers in the velocity config
+     */
+    public boolean isWatchServers() {
+        return watchServers;
+    }
+
+    /**
+     * @return maximum amount of servers subscribed to at the same time on startup
+     */
+    public int getWatchConcurrency() {
+        return watchConcurrency;
+    }
+
+    /**
+     * @return start servers when the proxy starts
+     */
+    public boolean isAutoStartEnabled() {
+        return autoStartEnabled;
+    }
+
+    /**
+     * @return maximum amount of servers started at the same time
+     */
+    public int getAutoStartParallelism() {
+        return autoStartParallelism;
+    }
+
+    /**
+     * @return minimum delay between two starts in milliseconds
+     */
+    public long getAutoStartStagger() {
+        return autoStartStagger;
+    }
+
+    /**
+     * @return stop servers when the proxy stops
+     */
+    public boolean isAutoStopEnabled() {
+        return autoStopEnabled;
+    }
+
+    /**
+     * @return maximum time in milliseconds to wait for stopped servers
+     */
+    public long getAutoStopTimeout() {
+        return autoStopTimeout;
+    }
+
+    /**
+     * @return cache mode (expire or refresh)
+     */
+    public String getCacheMode() {
+        return cacheMode;
+    }
+
+    /**
+     * @return server list refresh interval in milliseconds
+     */
+    public long getCacheRefreshInterval() {
+        return cacheRefreshInterval;
+    }
+
+    /**
+     * @return keep a snapshot of the server list
+     */
+    public boolean isCacheSnapshot() {
+        return cacheSnapshot;
+    }
+
+    /**
+     * @return is the join queue enabled
+     */
+    public boolean isJoinQueueEnabled() {
+        return joinQueueEnabled;
+    }
+
+    /**
+     * @return server queued players wait on
+     */
+    public String getJoinQueueFallbackServer() {
+        return joinQueueFallbackServer;
+    }
+
+    /**
+     * @return players moved at once
+     */
+    public int getJoinQueueBatchSize() {
+        return joinQueueBatchSize;
+    }
+
+    /**
+     * @return time between batches in milliseconds
+     */
+    public long getJoinQueueBatchInterval() {
+        return joinQueueBatchInterval;
+    }
+
+    /**
+     * @return is the idle auto-stop enabled
+     */
+    public boolean isIdleStopEnabled() {
+        return idleStopEnabled;
+    }
+
+    /**
+     * @return time without players before a server is stopped in milliseconds
+     */
+    public long getIdleStopTimeout() {
+        return idleStopTimeout;
+    }
+
+    /**
+     * @return I/O threads
+     */
+    public int getExecutorThreads() {
+        return executorThreads;
+    }
+
+    /**
+     * @return maximum amount of waiting I/O tasks
+     */
+    public int getExecutorQueueSize() {
+        return executorQueueSize;
+    }
+
+    /**
+     * @return API requests per second
+     */
+    public double getRateLimit() {
+        return rateLimit;
+    }
+
+    /**
+     * @return maximum amount of API requests sent at once
+     */
+    public int getRateLimitBurst() {
+        return rateLimitBurst;
+    }
+
+    /**
+     * @return maximum attempts of idempotent reads
+     */
+    public int getRetryAttempts() {
+        return retryAttempts;
+    }
+
+    /**
+     * @return delay before the first retry in milliseconds
+     */
+    public long getRetryDelay() {
+        return retryDelay;
+    }
+
+    /**
+     * @return maximum delay between retries in milliseconds
+     */
+    public long getRetryMaxDelay() {
+        return retryMaxDelay;
+    }
+
+    /**
+     * @return consecutive failures before the circuit breaker opens
+     */
+    public int getCircuitBreakerThreshold() {
+        return circuitBreakerThreshold;
+    }
+
+    /**
+     * @return time the circuit breaker stays open in milliseconds
+     */
+    public long getCircuitBreakerOpenTime() {
+        return circuitBreakerOpenTime;
+    }
+
+    /**
+     * @return time an unused subscription stays open in milliseconds
+     */
+    public long getSubscriptionIdleTimeout() {
+        return subscriptionIdleTimeout;
+    }
+
+    /**
+     * @return maximum amount of subscriptions or 0 for no limit
+     */
+    public int getMaxSubscriptions() {
+        return maxSubscriptions;
+    }
+
+    /**
+     * @return time between checks for missed status updates in milliseconds or 0 if disabled
+     */
+    public long getResyncInterval() {
+        return resyncInterval;
+    }
+
+    /**
+     * @return delay before a subscription is reconnected again in milliseconds
+     */
+    public long getReconnectDelay() {
+        return reconnectDelay;
+    }
+
+    /**
+     * @return maximum delay between reconnects in milliseconds
+     */
+    public long getMaxReconnectDelay() {
+        return maxReconnectDelay;
+    }
+
+    /**
+     * @return port of the metrics endpoint or 0 if disabled
+     */
+    public int getMetricsPort() {
+        return metricsPort;
+    }
+
+    /**
+     * @return address the metrics endpoint is bound to
+     */
+    public String getMetricsHost() {
+        return metricsHost;
+    }
+
+    /**
+     * @return servers referenced by the config, not resolved yet
+     */
+    public ServerConfig getServers() {
+        return servers;
+    }
+}
@@ -0,0 +1,129 @@
+package com.exaroton.velocity;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * executor for blocking plugin I/O (API requests, websocket subscriptions)
+ * uses a fixed amount of named daemon threads and a bounded queue. Tasks are rejected with a
+ * {@link RejectedExecutionException} if the queue is full.
+ */
+public class PluginExecutor implements Executor {
+
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * amount of submitted tasks
+     */
+    private final LongAdder submitted = new LongAdder();
+
+    /**
+     * amount of completed tasks
+     */
+    private final LongAdder completed = new LongAdder();
+
+    /**
+     * amount of rejected tasks
+     */
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * @param threads amount of threads
+     * @param queueSize maximum amount of waiting tasks
+     */
+    public PluginExecutor(int threads, int queueSize) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory factory = runnable -> {
+            Thread thread = new Thread(runnable, "exaroton-io-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(queueSize), factory, new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        try {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    completed.increment();
+                }
+            });
+            submitted.increment();
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw e;
+        }
+    }
+
+    /**
+     * stop accepting tasks and wait for running tasks
+     * @param timeout maximum time to wait
+     * @param unit time unit
+     * @return did all tasks finish in time
+     */
+    public boolean shutdown(long timeout, TimeUnit unit) {
+        executor.shutdown();
+        try {
+            if (executor.awaitTermination(timeout, unit)) {
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        executor.shutdownNow();
+        return false;
+    }
+
+    /**
+     * @return amount of tasks waiting for a thread
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * @return amount of threads currently running a task
+     */
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * @return maximum amount of threads
+     */
+    public int getThreadCount() {
+        return executor.getMaximumPoolSize();
+    }
+
+    /**
+     * @return amount of submitted tasks
+     */
+    public long getSubmittedCount() {
+        return submitted.sum();
+    }
+
+    /**
+     * @return amount of completed tasks
+     */
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+
+    /**
+     * @return amount of rejected tasks
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+}
@@ -0,0 +1,102 @@
+package com.exaroton.velocity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * immutable sorted index for prefix queries
+ * keys are sorted once, lookups use a binary search to find the first matching key
+ * @param <T> value type
+ */
+public final class PrefixIndex<T> {
+
+    /**
+     * sorted keys
+     */
+    private final String[] keys;
+
+    /**
+     * values in the same order as the keys
+     */
+    private final Object[] values;
+
+    private PrefixIndex(String[] keys, Object[] values) {
+        this.keys = keys;
+        this.values = values;
+    }
+
+    /**
+     * @param entries key value pairs (keys may be duplicated)
+     * @param <T> value type
+     * @return prefix index
+     */
+    public static <T> PrefixIndex<T> of(List<Entry<T>> entries) {
+        List<Entry<T>> sorted = new ArrayList<>(entries);
+        sorted.sort(Comparator.comparing(Entry::getKey));
+        String[] keys = new String[sorted.size()];
+        Object[] values = new Object[sorted.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = sorted.get(i).getKey();
+            values[i] = sorted.get(i).getValue();
+        }
+        return new PrefixIndex<>(keys, values);
+    }
+
+    /**
+     * add all keys starting with the prefix to the result list
+     * @param prefix key prefix
+     * @param limit maximum size of the result list
+     * @param filter value filter or null
+     * @param result sorted matching keys are appended to this list
+     */
+    @SuppressWarnings("unchecked")
+    public void collect(String prefix, int limit, Predicate<T> filter, List<String> result) {
+        int index = Arrays.binarySearch(keys, prefix);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        else {
+            // binary search can hit any of several equal keys
+            while (index > 0 && keys[index - 1].equals(prefix)) {
+                index--;
+            }
+        }
+
+        for (; index < keys.length && result.size() < limit; index++) {
+            if (!keys[index].startsWith(prefix)) {
+                break;
+            }
+            if (filter == null || filter.test((T) values[index])) {
+                result.add(keys[index]);
+            }
+        }
+    }
+
+    /**
+     * @return amount of keys
+     */
+    public int size() {
+        return keys.length;
+    }
+
+    public static final class Entry<T> {
+        private final String key;
+        private final T value;
+
+        public Entry(String key, T value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public T getValue() {
+            return value;
+        }
+    }
+}
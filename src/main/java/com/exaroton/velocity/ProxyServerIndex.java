@@ -0,0 +1,142 @@
+package com.exaroton.velocity;
+
+import com.velocitypowered.api.proxy.ProxyServer;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * cached indexes of the servers in the velocity proxy
+ * - registered server names for tab completion
+ * - host -> server name from the velocity configuration (case sensitive, like the address in the config)
+ * the indexes are rebuilt when they are invalidated (e.g. when this plugin registers a server or the proxy reloads).
+ * The name index is also rebuilt when it is older than {@link #MAX_AGE} to pick up servers registered by other plugins.
+ */
+public class ProxyServerIndex {
+
+    /**
+     * maximum age of the index in milliseconds
+     */
+    private static final long MAX_AGE = TimeUnit.SECONDS.toMillis(5);
+
+    /**
+     * velocity proxy
+     */
+    private final ProxyServer proxy;
+
+    /**
+     * current name index or null if it has to be rebuilt
+     */
+    private volatile Snapshot snapshot;
+
+    /**
+     * current address index or null if it has to be rebuilt
+     */
+    private volatile AddressIndex addressIndex;
+
+    public ProxyServerIndex(ProxyServer proxy) {
+        this.proxy = proxy;
+    }
+
+    /**
+     * force a rebuild on the next access
+     */
+    public void invalidate() {
+        this.snapshot = null;
+        this.addressIndex = null;
+    }
+
+    /**
+     * find the name of a server in the velocity config by its address
+     * @param address server address with or without port e.g. example.exaroton.me
+     * @return server name or null
+     */
+    public String findName(String address) {
+        if (address == null) {
+            return null;
+        }
+        Map<String, String> servers = proxy.getConfiguration().getServers();
+        AddressIndex current = this.addressIndex;
+        if (current == null || current.servers != servers) {
+            current = new AddressIndex(servers);
+            this.addressIndex = current;
+        }
+        return current.names.get(stripPort(address));
+    }
+
+    /**
+     * remove the port from an address
+     * @param address address e.g. example.exaroton.me:25565
+     * @return host e.g. example.exaroton.me
+     */
+    public static String stripPort(String address) {
+        int colon = address.lastIndexOf(':');
+        if (colon < 0 || colon == address.length() - 1) {
+            return address;
+        }
+        for (int i = colon + 1; i < address.length(); i++) {
+            char c = address.charAt(i);
+            if (c < '0' || c > '9') {
+                return address;
+            }
+        }
+        return address.substring(0, colon);
+    }
+
+    /**
+     * find registered server names starting with the query
+     * @param query partial server name
+     * @param limit maximum size of the result list
+     * @param result sorted matching names are appended to this list
+     */
+    public void complete(String query, int limit, List<String> result) {
+        this.getSnapshot().names.collect(query, limit, null, result);
+    }
+
+    private Snapshot getSnapshot() {
+        Snapshot current = this.snapshot;
+        if (current == null || System.currentTimeMillis() - current.createdAt > MAX_AGE) {
+            current = new Snapshot(proxy.getAllServers());
+            this.snapshot = current;
+        }
+        return current;
+    }
+
+    private static final class AddressIndex {
+        /**
+         * velocity config servers the index was built from
+         */
+        private final Map<String, String> servers;
+
+        /**
+         * host -> first server name with this host
+         */
+        private final Map<String, String> names;
+
+        private AddressIndex(Map<String, String> servers) {
+            this.servers = servers;
+            this.names = new HashMap<>(servers.size() * 2);
+            for (Map.Entry<String, String> entry : servers.entrySet()) {
+                this.names.putIfAbsent(stripPort(entry.getValue()), entry.getKey());
+            }
+        }
+    }
+
+    private static final class Snapshot {
+        private final PrefixIndex<Void> names;
+        private final long createdAt = System.currentTimeMillis();
+
+        private Snapshot(Collection<RegisteredServer> servers) {
+            List<PrefixIndex.Entry<Void>> entries = new ArrayList<>(servers.size());
+            for (RegisteredServer server : servers) {
+                entries.add(new PrefixIndex.Entry<>(server.getServerInfo().getName(), null));
+            }
+            this.names = PrefixIndex.of(entries);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.exaroton.velocity;
+
+import com.exaroton.api.APIException;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * exponential backoff with jitter for retrying idempotent API requests
+ */
+public class RetryPolicy {
+
+    /**
+     * HTTP status line at the start of an error message, e.g. "HTTP 503" or "HTTP/1.1 429 Too Many Requests"
+     */
+    private static final Pattern STATUS_LINE = Pattern.compile("^HTTP(?:/\\d(?:\\.\\d)?)? (\\d{3})\\b");
+
+    /**
+     * maximum amount of attempts including the first one
+     */
+    private final int attempts;
+
+    /**
+     * delay before the first retry in milliseconds
+     */
+    private final long baseDelay;
+
+    /**
+     * maximum delay between two attempts in milliseconds
+     */
+    private final long maxDelay;
+
+    /**
+     * @param attempts maximum amount of attempts including the first one
+     * @param baseDelay delay before the first retry in milliseconds
+     * @param maxDelay maximum delay between two attempts in milliseconds
+     */
+    public RetryPolicy(int attempts, long baseDelay, long maxDelay) {
+        if (attempts < 1 || baseDelay < 0 || maxDelay < baseDelay) {
+            throw new IllegalArgumentException("Invalid retry settings!");
+        }
+        this.attempts = attempts;
+        this.baseDelay = baseDelay;
+        this.maxDelay = maxDelay;
+    }
+
+    /**
+     * @return maximum amount of attempts including the first one
+     */
+    public int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * get the delay before the next attempt
+     * the delay doubles with every attempt, half of it is randomized so that clients don't retry in lockstep
+     * @param attempt failed attempt (starting at 1)
+     * @return delay in milliseconds
+     */
+    public long getDelay(int attempt) {
+        long delay = Math.min(maxDelay, baseDelay << Math.min(attempt - 1, 30));
+        long half = delay / 2;
+        return half + ThreadLocalRandom.current().nextLong(delay - half + 1);
+    }
+
+    /**
+     * transient failures are network errors and timeouts (the API couldn't be reached or didn't answer), rate limit
+     * responses (429) and server errors (5xx). Other error responses (e.g. an unknown server) are not transient.
+     * @param exception API exception
+     * @return is the failure worth retrying
+     */
+    public static boolean isTransient(APIException exception) {
+        if (exception instanceof CircuitBreaker.OpenException) {
+            return false;
+        }
+        for (Throwable cause = exception.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof IOException || cause instanceof TimeoutException) {
+                return true;
+            }
+        }
+        int status = getStatusCode(exception);
+        return status == 429 || status >= 500;
+    }
+
+    /**
+     * get the HTTP status of an error response
+     * the exaroton API client doesn't expose the status of error responses, so this is a last resort that only
+     * accepts messages starting with an HTTP status line. Numbers anywhere else in the message are ignored.
+     * @param exception API exception
+     * @return HTTP status code or -1 if unknown
+     */
+    public static int getStatusCode(APIException exception) {
+        String message = exception.getMessage();
+        if (message == null) {
+            return -1;
+        }
+        Matcher matcher = STATUS_LINE.matcher(message);
+        return matcher.find() ? Integer.parseInt(matcher.group(1)) : -1;
+    }
+}
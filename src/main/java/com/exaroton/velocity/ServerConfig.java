@@ -0,0 +1,230 @@
+package com.exaroton.velocity;
+
+import com.exaroton.api.server.Server;
+import com.moandjiezana.toml.Toml;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * servers referenced by the plugin config: auto-start and auto-stop lists, per server tables and start classes
+ * server references are resolved once per server list, lookups by id, address or velocity name are map lookups.
+ * Instances are immutable, resolving creates a new instance.
+ */
+public final class ServerConfig {
+
+    /**
+     * config without any servers
+     */
+    public static final ServerConfig EMPTY = new ServerConfig(Collections.emptyList(), Collections.emptyList(),
+            Collections.emptyList(), Collections.emptyMap());
+
+    private final List<ServerReference> autoStartServers;
+
+    private final List<ServerReference> autoStopServers;
+
+    /**
+     * per server settings in config order
+     */
+    private final List<ServerSettings> settings;
+
+    /**
+     * start class -> maximum amount of servers of this class started at the same time
+     */
+    private final Map<String, Integer> startClasses;
+
+    /**
+     * config key, server id, address and velocity name -> settings
+     */
+    private final Map<String, ServerSettings> index;
+
+    private ServerConfig(List<ServerReference> autoStartServers, List<ServerReference> autoStopServers,
+                         List<ServerSettings> settings, Map<String, Integer> startClasses) {
+        this.autoStartServers = autoStartServers;
+        this.autoStopServers = autoStopServers;
+        this.settings = settings;
+        this.startClasses = startClasses;
+
+        Map<String, ServerSettings> index = new HashMap<>();
+        for (ServerSettings serverSettings : settings) {
+            ServerReference server = serverSettings.getServer();
+            index.putIfAbsent(server.getQuery(), serverSettings);
+            if (server.isResolved()) {
+                index.putIfAbsent(server.getId(), serverSettings);
+                index.putIfAbsent(server.getAddress(), serverSettings);
+                if (server.getProxyName() != null) {
+                    index.putIfAbsent(server.getProxyName(), serverSettings);
+                }
+            }
+        }
+        this.index = index;
+    }
+
+    /**
+     * parse the server related parts of the config
+     * @param config configuration with defaults
+     * @return unresolved server config
+     */
+    public static ServerConfig of(Toml config) {
+        List<ServerSettings> settings = new ArrayList<>();
+        Toml servers = config.getTable("servers");
+        if (servers != null) {
+            for (Map.Entry<String, Object> entry : servers.entrySet()) {
+                if (entry.getValue() instanceof Toml) {
+                    settings.add(ServerSettings.of(unquote(entry.getKey()), (Toml) entry.getValue()));
+                }
+            }
+        }
+
+        Map<String, Integer> startClasses = new LinkedHashMap<>();
+        Toml classes = config.getTable("auto-start.classes");
+        if (classes != null) {
+            for (Map.Entry<String, Object> entry : classes.entrySet()) {
+                if (entry.getValue() instanceof Number) {
+                    startClasses.put(unquote(entry.getKey()), Math.max(1, ((Number) entry.getValue()).intValue()));
+                }
+            }
+        }
+
+        return new ServerConfig(references(config, "auto-start.servers"), references(config, "auto-stop.servers"),
+                Collections.unmodifiableList(settings), Collections.unmodifiableMap(startClasses));
+    }
+
+    private static List<ServerReference> references(Toml config, String key) {
+        List<ServerReference> references = new ArrayList<>();
+        for (Object query : config.getList(key, Collections.emptyList())) {
+            references.add(ServerReference.of(String.valueOf(query)));
+        }
+        return Collections.unmodifiableList(references);
+    }
+
+    /**
+     * @param key table key
+     * @return key without surrounding quotes
+     */
+    private static String unquote(String key) {
+        if (key.length() >= 2 && key.startsWith("\"") && key.endsWith("\"")) {
+            return key.substring(1, key.length() - 1);
+        }
+        return key;
+    }
+
+    /**
+     * resolve all server references against a server list
+     * @param plugin exaroton plugin
+     * @param registry server list
+     * @return resolved server config
+     */
+    public ServerConfig resolve(ExarotonPlugin plugin, ServerRegistry registry) {
+        List<ServerSettings> resolvedSettings = new ArrayList<>(settings.size());
+        for (ServerSettings serverSettings : settings) {
+            resolvedSettings.add(serverSettings.withServer(serverSettings.getServer().resolve(plugin, registry)));
+        }
+        return new ServerConfig(resolve(autoStartServers, plugin, registry), resolve(autoStopServers, plugin, registry),
+                Collections.unmodifiableList(resolvedSettings), startClasses);
+    }
+
+    private static List<ServerReference> resolve(List<ServerReference> references, ExarotonPlugin plugin, ServerRegistry registry) {
+        List<ServerReference> resolved = new ArrayList<>(references.size());
+        for (ServerReference reference : references) {
+            resolved.add(reference.resolve(plugin, registry));
+        }
+        return Collections.unmodifiableList(resolved);
+    }
+
+    /**
+     * find the settings of a server
+     * @param server exaroton server
+     * @param proxyName name of the server in the velocity config or null
+     * @return settings or null if the server has no table
+     */
+    public ServerSettings getSettings(Server server, String proxyName) {
+        if (index.isEmpty()) {
+            return null;
+        }
+        ServerSettings result = index.get(server.getId());
+        if (result == null) {
+            result = index.get(server.getAddress());
+        }
+        if (result == null && proxyName != null) {
+            result = index.get(proxyName);
+        }
+        if (result == null) {
+            result = index.get(server.getName());
+        }
+        return result;
+    }
+
+    /**
+     * @param reference server reference from this config
+     * @return settings or null if the server has no table
+     */
+    public ServerSettings getSettings(ServerReference reference) {
+        ServerSettings result = reference.isResolved() ? index.get(reference.getId()) : null;
+        return result != null ? result : index.get(reference.getQuery());
+    }
+
+    /**
+     * @param server exaroton server
+     * @param proxyName name of the server in the velocity config or null
+     * @param defaultTimeout idle-stop.timeout in milliseconds
+     * @return idle timeout of the server in milliseconds
+     */
+    public long getIdleTimeout(Server server, String proxyName, long defaultTimeout) {
+        ServerSettings serverSettings = this.getSettings(server, proxyName);
+        return serverSettings == null ? defaultTimeout : serverSettings.getIdleTimeout(defaultTimeout);
+    }
+
+    /**
+     * @param server exaroton server
+     * @param proxyName name of the server in the velocity config
+     * @param defaultServer join-queue.fallback-server
+     * @return join queue fallback server of the server
+     */
+    public String getFallbackServer(Server server, String proxyName, String defaultServer) {
+        ServerSettings serverSettings = this.getSettings(server, proxyName);
+        return serverSettings == null ? defaultServer : serverSettings.getFallbackServer(defaultServer);
+    }
+
+    /**
+     * @param startClass start class or null for the default class
+     * @param defaultParallelism auto-start.parallelism
+     * @return maximum amount of servers of the class started at the same time
+     */
+    public int getStartParallelism(String startClass, int defaultParallelism) {
+        Integer parallelism = startClass == null ? null : startClasses.get(startClass);
+        return parallelism == null ? defaultParallelism : parallelism;
+    }
+
+    /**
+     * @return servers started when the proxy starts
+     */
+    public List<ServerReference> getAutoStartServers() {
+        return autoStartServers;
+    }
+
+    /**
+     * @return servers stopped when the proxy stops
+     */
+    public List<ServerReference> getAutoStopServers() {
+        return autoStopServers;
+    }
+
+    /**
+     * @return per server settings in config order
+     */
+    public List<ServerSettings> getSettings() {
+        return settings;
+    }
+
+    /**
+     * @return start class -> maximum amount of servers of this class started at the same time
+     */
+    public Map<String, Integer> getStartClasses() {
+        return startClasses;
+    }
+}
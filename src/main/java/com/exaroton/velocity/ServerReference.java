@@ -0,0 +1,129 @@
+package com.exaroton.velocity;
+
+import com.exaroton.api.server.Server;
+
+/**
+ * server from the plugin config (name, address, id or velocity server name)
+ * once resolved against a server list the reference knows the id, address and velocity name of the server, so later
+ * lookups are a single id lookup.
+ */
+public final class ServerReference {
+
+    /**
+     * server as written in the config
+     */
+    private final String query;
+
+    /**
+     * resolved server id or null
+     */
+    private final String id;
+
+    /**
+     * resolved server address or null
+     */
+    private final String address;
+
+    /**
+     * name of the server in the velocity config or null
+     */
+    private final String proxyName;
+
+    private ServerReference(String query, String id, String address, String proxyName) {
+        this.query = query;
+        this.id = id;
+        this.address = address;
+        this.proxyName = proxyName;
+    }
+
+    /**
+     * @param query server as written in the config
+     * @return unresolved reference
+     */
+    public static ServerReference of(String query) {
+        return new ServerReference(query, null, null, null);
+    }
+
+    /**
+     * resolve the reference against a server list
+     * @param plugin exaroton plugin
+     * @param registry server list
+     * @return resolved reference or an unresolved reference if the server doesn't exist
+     */
+    public ServerReference resolve(ExarotonPlugin plugin, ServerRegistry registry) {
+        Server server = plugin.findServer(registry, query);
+        if (server == null) {
+            return id == null ? this : of(query);
+        }
+        return new ServerReference(query, server.getId(), server.getAddress(), plugin.findServerName(server.getAddress()));
+    }
+
+    /**
+     * find the referenced server
+     * @param plugin exaroton plugin
+     * @param registry server list
+     * @return server or null if it doesn't exist
+     */
+    public Server find(ExarotonPlugin plugin, ServerRegistry registry) {
+        if (id != null) {
+            Server server = registry.getById(id);
+            if (server != null) {
+                return server;
+            }
+        }
+        return plugin.findServer(registry, query);
+    }
+
+    /**
+     * @return server as written in the config
+     */
+    public String getQuery() {
+        return query;
+    }
+
+    /**
+     * @return resolved server id or null
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return resolved server address or null
+     */
+    public String getAddress() {
+        return address;
+    }
+
+    /**
+     * @return name of the server in the velocity config or null
+     */
+    public String getProxyName() {
+        return proxyName;
+    }
+
+    /**
+     * @return has the reference been resolved to a server
+     */
+    public boolean isResolved() {
+        return id != null;
+    }
+
+    /**
+     * references are equal if they were written the same way in the config
+     */
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof ServerReference && query.equals(((ServerReference) o).query);
+    }
+
+    @Override
+    public int hashCode() {
+        return query.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return query;
+    }
+}
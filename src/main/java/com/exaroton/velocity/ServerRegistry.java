@@ -0,0 +1,239 @@
+package com.exaroton.velocity;
+
+import com.exaroton.api.server.Server;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/**
+ * immutable snapshot of the exaroton server list
+ * servers are indexed by id, name and address for constant time lookups
+ */
+public final class ServerRegistry {
+
+    /**
+     * servers in the order returned by the API
+     */
+    private final Server[] servers;
+
+    /**
+     * server id -> index in servers
+     */
+    private final Map<String, Integer> byId;
+
+    /**
+     * server name -> index of the first server with this name
+     */
+    private final Map<String, Integer> byName;
+
+    /**
+     * server address -> index of the first server with this address
+     */
+    private final Map<String, Integer> byAddress;
+
+    /**
+     * prefix indexes for tab completion (name, address, id -> server id)
+     */
+    private final PrefixIndex<String> names, addresses, ids;
+
+    /**
+     * version of this snapshot, incremented for every derived registry
+     */
+    private final long version;
+
+    /**
+     * time the server list was fetched from the API (epoch millis)
+     */
+    private final long timestamp;
+
+    /**
+     * was the server list restored from a snapshot instead of fetched from the API
+     */
+    private final boolean restored;
+
+    private ServerRegistry(Server[] servers, Map<String, Integer> byId, Map<String, Integer> byName,
+                           Map<String, Integer> byAddress, PrefixIndex<String> names, PrefixIndex<String> addresses,
+                           PrefixIndex<String> ids, long version, long timestamp, boolean restored) {
+        this.servers = servers;
+        this.byId = byId;
+        this.byName = byName;
+        this.byAddress = byAddress;
+        this.names = names;
+        this.addresses = addresses;
+        this.ids = ids;
+        this.version = version;
+        this.timestamp = timestamp;
+        this.restored = restored;
+    }
+
+    /**
+     * create a registry from a freshly fetched server list
+     * @param servers servers returned by the API
+     * @param previous previous registry or null
+     * @return new registry
+     */
+    public static ServerRegistry of(Server[] servers, ServerRegistry previous) {
+        return of(servers, previous, System.currentTimeMillis(), false);
+    }
+
+    /**
+     * create a registry from a server list saved in a snapshot
+     * @param servers servers from the snapshot
+     * @param timestamp time the server list was fetched from the API (epoch millis)
+     * @return new registry
+     */
+    public static ServerRegistry restore(Server[] servers, long timestamp) {
+        return of(servers, null, timestamp, true);
+    }
+
+    private static ServerRegistry of(Server[] servers, ServerRegistry previous, long timestamp, boolean restored) {
+        Server[] copy = servers.clone();
+        Map<String, Integer> byId = new HashMap<>(copy.length * 2);
+        Map<String, Integer> byName = new HashMap<>(copy.length * 2);
+        Map<String, Integer> byAddress = new HashMap<>(copy.length * 2);
+        List<PrefixIndex.Entry<String>> names = new ArrayList<>(copy.length);
+        List<PrefixIndex.Entry<String>> addresses = new ArrayList<>(copy.length);
+        List<PrefixIndex.Entry<String>> ids = new ArrayList<>(copy.length);
+        for (int i = 0; i < copy.length; i++) {
+            Server server = copy[i];
+            byId.putIfAbsent(server.getId(), i);
+            byName.putIfAbsent(server.getName(), i);
+            byAddress.putIfAbsent(server.getAddress(), i);
+            ids.add(new PrefixIndex.Entry<>(server.getId(), server.getId()));
+            if (server.getName() != null) {
+                names.add(new PrefixIndex.Entry<>(server.getName(), server.getId()));
+            }
+            if (server.getAddress() != null) {
+                addresses.add(new PrefixIndex.Entry<>(server.getAddress(), server.getId()));
+            }
+        }
+        long version = previous == null ? 1 : previous.version + 1;
+        return new ServerRegistry(copy, byId, byName, byAddress, PrefixIndex.of(names), PrefixIndex.of(addresses),
+                PrefixIndex.of(ids), version, timestamp, restored);
+    }
+
+    /**
+     * find a server by its name, address or id
+     * if a server can't be uniquely identified then the id will be preferred
+     * @param query server name, address or id
+     * @return found server or null
+     */
+    public Server find(String query) {
+        Integer index = byId.get(query);
+        if (index != null) {
+            return servers[index];
+        }
+
+        Integer address = byAddress.get(query);
+        Integer name = byName.get(query);
+        if (address == null) {
+            return name == null ? null : servers[name];
+        }
+        return servers[name == null ? address : Math.min(address, name)];
+    }
+
+    /**
+     * @param id server id
+     * @return server with this id or null
+     */
+    public Server getById(String id) {
+        Integer index = byId.get(id);
+        return index == null ? null : servers[index];
+    }
+
+    /**
+     * @param address server address e.g. example.exaroton.me
+     * @return first server with this address or null
+     */
+    public Server getByAddress(String address) {
+        Integer index = byAddress.get(address);
+        return index == null ? null : servers[index];
+    }
+
+    /**
+     * create a new registry with an updated server
+     * the indexes are reused unless the name or address of the server changed
+     * @param server updated server
+     * @return new registry or this registry if the server is unknown
+     */
+    public ServerRegistry withServer(Server server) {
+        Integer index = byId.get(server.getId());
+        if (index == null) {
+            return this;
+        }
+
+        Server[] copy = servers.clone();
+        Server old = copy[index];
+        copy[index] = server;
+        if (Objects.equals(old.getName(), server.getName()) && Objects.equals(old.getAddress(), server.getAddress())) {
+            return new ServerRegistry(copy, byId, byName, byAddress, names, addresses, ids, version + 1, timestamp, restored);
+        }
+
+        ServerRegistry rebuilt = of(copy, this);
+        return new ServerRegistry(rebuilt.servers, rebuilt.byId, rebuilt.byName, rebuilt.byAddress, rebuilt.names,
+                rebuilt.addresses, rebuilt.ids, version + 1, timestamp, restored);
+    }
+
+    /**
+     * find names, addresses and ids starting with the query
+     * results are sorted within each group (names, then addresses, then ids)
+     * @param query partial server name, address or id
+     * @param filter server filter or null
+     * @param limit maximum size of the result list
+     * @param result matching completions are appended to this list
+     */
+    public void complete(String query, Predicate<Server> filter, int limit, List<String> result) {
+        Predicate<String> idFilter = filter == null ? null : id -> filter.test(getById(id));
+        names.collect(query, limit, idFilter, result);
+        addresses.collect(query, limit, idFilter, result);
+        ids.collect(query, limit, idFilter, result);
+    }
+
+    /**
+     * @return all servers (read only)
+     */
+    public List<Server> getServers() {
+        return Collections.unmodifiableList(Arrays.asList(servers));
+    }
+
+    /**
+     * @return copy of the server array
+     */
+    public Server[] toArray() {
+        return servers.clone();
+    }
+
+    /**
+     * @return amount of servers
+     */
+    public int size() {
+        return servers.length;
+    }
+
+    /**
+     * @return snapshot version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return time the server list was fetched (epoch millis)
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return was the server list restored from a snapshot instead of fetched from the API
+     */
+    public boolean isRestored() {
+        return restored;
+    }
+}
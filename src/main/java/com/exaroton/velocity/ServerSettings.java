@@ -0,0 +1,122 @@
+package com.exaroton.velocity;
+
+import com.moandjiezana.toml.Toml;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * per server overrides from a [servers."&lt;server&gt;"] table
+ */
+public final class ServerSettings {
+
+    /**
+     * configured server
+     */
+    private final ServerReference server;
+
+    /**
+     * idle timeout in milliseconds or -1 to use idle-stop.timeout
+     */
+    private final long idleTimeout;
+
+    /**
+     * auto-start priority, servers with a higher priority are started first
+     */
+    private final int priority;
+
+    /**
+     * auto-start concurrency class or null for the default class
+     */
+    private final String startClass;
+
+    /**
+     * join queue fallback server or null to use join-queue.fallback-server
+     */
+    private final String fallbackServer;
+
+    private ServerSettings(ServerReference server, long idleTimeout, int priority, String startClass, String fallbackServer) {
+        this.server = server;
+        this.idleTimeout = idleTimeout;
+        this.priority = priority;
+        this.startClass = startClass;
+        this.fallbackServer = fallbackServer;
+    }
+
+    /**
+     * parse a server table
+     * @param query server as written in the config
+     * @param table server table
+     * @return server settings
+     */
+    public static ServerSettings of(String query, Toml table) {
+        Long idleTimeout = table.getLong("idle-timeout");
+        return new ServerSettings(ServerReference.of(query),
+                idleTimeout == null ? -1 : TimeUnit.SECONDS.toMillis(Math.max(1, idleTimeout)),
+                table.getLong("priority", 0L).intValue(),
+                table.getString("start-class"),
+                table.getString("fallback-server"));
+    }
+
+    /**
+     * @param server resolved reference
+     * @return settings for the resolved server
+     */
+    ServerSettings withServer(ServerReference server) {
+        return new ServerSettings(server, idleTimeout, priority, startClass, fallbackServer);
+    }
+
+    /**
+     * @return configured server
+     */
+    public ServerReference getServer() {
+        return server;
+    }
+
+    /**
+     * @param defaultTimeout idle timeout used by other servers
+     * @return idle timeout in milliseconds
+     */
+    public long getIdleTimeout(long defaultTimeout) {
+        return idleTimeout < 0 ? defaultTimeout : idleTimeout;
+    }
+
+    /**
+     * @return auto-start priority, servers with a higher priority are started first
+     */
+    public int getPriority() {
+        return priority;
+    }
+
+    /**
+     * @return auto-start concurrency class or null for the default class
+     */
+    public String getStartClass() {
+        return startClass;
+    }
+
+    /**
+     * @param defaultServer fallback server used by other servers
+     * @return join queue fallback server
+     */
+    public String getFallbackServer(String defaultServer) {
+        return fallbackServer == null ? defaultServer : fallbackServer;
+    }
+
+    /**
+     * settings are equal if they configure the same values for the same config entry
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ServerSettings)) return false;
+        ServerSettings other = (ServerSettings) o;
+        return idleTimeout == other.idleTimeout && priority == other.priority && server.equals(other.server)
+                && Objects.equals(startClass, other.startClass) && Objects.equals(fallbackServer, other.fallbackServer);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(server, idleTimeout, priority, startClass, fallbackServer);
+    }
+}
@@ -0,0 +1,183 @@
+package com.exaroton.velocity;
+
+import com.exaroton.api.ExarotonClient;
+import com.exaroton.api.server.Server;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * snapshot of the last known server list in the plugin data directory
+ * the snapshot is loaded on startup so that lookups don't have to wait for the first API request. It is written
+ * atomically (temporary file + move) and only if the server list changed.
+ */
+public class ServerSnapshotStore {
+
+    /**
+     * snapshot format version
+     */
+    private static final int FORMAT = 1;
+
+    /**
+     * delay before changes are written, further changes within this time are written together
+     */
+    private static final long WRITE_DELAY = TimeUnit.SECONDS.toMillis(5);
+
+    private static final Gson GSON = new Gson();
+
+    private final ExarotonPlugin plugin;
+
+    private final Logger logger;
+
+    /**
+     * snapshot file
+     */
+    private final Path file;
+
+    /**
+     * servers in the last written or loaded snapshot
+     */
+    private volatile String written;
+
+    /**
+     * is a write scheduled
+     */
+    private final AtomicBoolean writeScheduled = new AtomicBoolean();
+
+    /**
+     * @param plugin exaroton plugin
+     * @param file snapshot file
+     */
+    public ServerSnapshotStore(ExarotonPlugin plugin, Path file) {
+        this.plugin = plugin;
+        this.logger = plugin.getLogger();
+        this.file = file;
+    }
+
+    /**
+     * load the snapshot
+     * @param client API client used by the restored servers
+     * @return restored server registry or null if there is no valid snapshot
+     */
+    public ServerRegistry load(ExarotonClient client) {
+        if (Files.notExists(file)) {
+            return null;
+        }
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            JsonObject root = GSON.fromJson(reader, JsonObject.class);
+            if (root == null || !root.has("format") || root.get("format").getAsInt() != FORMAT) {
+                logger.warn("Ignoring server snapshot {} with unknown format", file);
+                return null;
+            }
+            JsonArray entries = root.getAsJsonArray("servers");
+            Server[] servers = new Server[entries.size()];
+            for (int i = 0; i < servers.length; i++) {
+                servers[i] = GSON.fromJson(entries.get(i), Server.class);
+                servers[i].setClient(client);
+            }
+            this.written = entries.toString();
+            return ServerRegistry.restore(servers, root.get("timestamp").getAsLong());
+        } catch (IOException | JsonParseException | IllegalStateException | NullPointerException e) {
+            logger.warn("Failed to load server snapshot {}", file, e);
+            return null;
+        }
+    }
+
+    /**
+     * write the current server list after a short delay
+     * changes until then are written together
+     */
+    public void scheduleWrite() {
+        if (!writeScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        plugin.getProxy().getScheduler().buildTask(plugin, () -> {
+            try {
+                plugin.getAsyncExecutor().execute(this::writeNow);
+            } catch (RejectedExecutionException e) {
+                writeScheduled.set(false);
+            }
+        }).delay(WRITE_DELAY, TimeUnit.MILLISECONDS).schedule();
+    }
+
+    /**
+     * write the current server list if it changed since the last write
+     */
+    public void writeNow() {
+        writeScheduled.set(false);
+        ServerRegistry registry = plugin.getCachedServerRegistry();
+        if (registry == null) {
+            return;
+        }
+
+        JsonArray entries = new JsonArray();
+        for (Server server : registry.getServers()) {
+            entries.add(serialize(server));
+        }
+        String servers = entries.toString();
+        synchronized (this) {
+            if (servers.equals(this.written)) {
+                return;
+            }
+
+            JsonObject root = new JsonObject();
+            root.addProperty("format", FORMAT);
+            root.addProperty("timestamp", registry.getTimestamp());
+            root.add("servers", entries);
+            try {
+                this.write(GSON.toJson(root));
+                this.written = servers;
+            } catch (IOException e) {
+                logger.warn("Failed to write server snapshot {}", file, e);
+            }
+        }
+    }
+
+    /**
+     * write to a temporary file and move it over the snapshot
+     * @param content file content
+     * @throws IOException failed to write or move the file
+     */
+    private void write(String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            writer.write(content);
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * @param server server
+     * @return snapshot entry
+     */
+    private static JsonElement serialize(Server server) {
+        JsonObject entry = new JsonObject();
+        entry.addProperty("id", server.getId());
+        entry.addProperty("name", server.getName());
+        entry.addProperty("address", server.getAddress());
+        entry.addProperty("host", server.getHost());
+        entry.addProperty("port", server.getPort());
+        entry.addProperty("status", server.getStatus());
+        return entry;
+    }
+}
@@ -10,6 +10,7 @@ import com.velocitypowered.api.proxy.server.ServerInfo;
 import net.kyori.adventure.text.Component;
 import org.slf4j.Logger;
 
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 
@@ -35,12 +36,12 @@ public class ServerStatusListener extends ServerStatusSubscriber {
     /**
      *
      */
-    private ServerInfo serverInfo;
+    private volatile ServerInfo serverInfo;
 
     /**
      * server name in proxy
      */
-    private String name;
+    private volatile String name;
 
     /**
      * server status sender is waiting for
@@ -49,19 +50,66 @@ public class ServerStatusListener extends ServerStatusSubscriber {
 
     private final Server server;
 
-    private final Map<Integer, List<CompletableFuture<Server>>> waitingFor = new HashMap<>();
+    /**
+     * latest known state of the server
+     */
+    private volatile Server currentServer;
+
+    /**
+     * futures waiting for a status
+     */
+    private final StatusWaiters waiters = new StatusWaiters();
+
+    /**
+     * completed once the websocket subscription is open
+     */
+    private final CompletableFuture<Void> subscription = new CompletableFuture<>();
+
+    /**
+     * time the server left the offline status (epoch millis) or -1
+     */
+    private volatile long startingSince = -1;
+
+    /**
+     * explicit references, the subscription isn't closed while there are any
+     */
+    private final Set<Reference> references = EnumSet.noneOf(Reference.class);
+
+    /**
+     * last time this listener was used (epoch millis)
+     */
+    private volatile long lastUsed = System.currentTimeMillis();
+
+    /**
+     * last time a status update was received from the websocket (epoch millis)
+     */
+    private volatile long lastUpdate = System.currentTimeMillis();
+
+    /**
+     * serializes websocket updates and resyncs
+     */
+    private final Object updateLock = new Object();
 
     public ServerStatusListener(ExarotonPlugin plugin, Server server) {
         this.plugin = plugin;
         this.proxy = plugin.getProxy();
         this.logger = plugin.getLogger();
         this.server = server;
+        this.currentServer = server;
     }
 
     public String getName(Server server) {
         return this.name != null ? this.name : server.getName();
     }
 
+    /**
+     * @return name of this server in the proxy
+     */
+    public String getProxyName() {
+        ServerInfo info = this.serverInfo;
+        return info == null ? this.getName(this.currentServer) : info.getName();
+    }
+
     public ServerStatusListener setServerInfo(ServerInfo serverInfo) {
         if (serverInfo != null) {
             this.serverInfo = serverInfo;
@@ -69,7 +117,7 @@ public class ServerStatusListener extends ServerStatusSubscriber {
         return this;
     }
 
-    public ServerStatusListener setSender(CommandSource sender, int expectedStatus) {
+    public synchronized ServerStatusListener setSender(CommandSource sender, int expectedStatus) {
         if (sender != null) {
             this.sender = sender;
             this.expectedStatus = expectedStatus;
@@ -84,25 +132,211 @@ public class ServerStatusListener extends ServerStatusSubscriber {
         return this;
     }
 
+    /**
+     * keep this subscription open until the reference is released
+     * retaining the same reference again has no effect
+     * @param reference reason to keep the subscription
+     * @return this listener
+     */
+    public ServerStatusListener retain(Reference reference) {
+        synchronized (references) {
+            references.add(reference);
+        }
+        return this;
+    }
+
+    /**
+     * release a reference added by {@link #retain(Reference)}
+     * the subscription is closed once it is no longer used for the idle timeout
+     * @param reference reason to keep the subscription
+     * @return was the reference held
+     */
+    public boolean release(Reference reference) {
+        boolean released;
+        synchronized (references) {
+            released = references.remove(reference);
+        }
+        this.touch();
+        return released;
+    }
+
+    /**
+     * @param reference reason to keep the subscription
+     * @return is the reference held
+     */
+    public boolean isRetained(Reference reference) {
+        synchronized (references) {
+            return references.contains(reference);
+        }
+    }
+
+    /**
+     * mark this listener as used
+     * @return this listener
+     */
+    public ServerStatusListener touch() {
+        this.lastUsed = System.currentTimeMillis();
+        return this;
+    }
+
+    /**
+     * @return last time this listener was used (epoch millis)
+     */
+    public long getLastUsed() {
+        return lastUsed;
+    }
+
+    /**
+     * @return amount of explicit references
+     */
+    public int getReferenceCount() {
+        synchronized (references) {
+            return references.size();
+        }
+    }
+
+    /**
+     * a listener is in use if it is referenced, someone is waiting for a status, the server is changing its status,
+     * it is registered in the proxy or the idle auto-stop is tracking it
+     * @return is anything interested in updates of this server
+     */
+    public boolean isInUse() {
+        if (!subscription.isDone() || this.getReferenceCount() > 0 || waiters.size() > 0 || this.hasPlayerSender()) {
+            return true;
+        }
+        if (!currentServer.hasStatus(ServerStatus.ONLINE, ServerStatus.OFFLINE, ServerStatus.CRASHED)) {
+            return true;
+        }
+        String proxyName = this.getProxyName();
+        if (proxy.getServer(proxyName).isPresent()) {
+            return true;
+        }
+        IdleStopManager idleStopManager = plugin.getIdleStopManager();
+        return idleStopManager != null && idleStopManager.isTracking(proxyName);
+    }
+
+    /**
+     * @return is a player waiting for a status message
+     */
+    private synchronized boolean hasPlayerSender() {
+        return sender != null && !sender.equals(proxy.getConsoleCommandSource());
+    }
+
     @Override
     public void statusUpdate(Server oldServer, Server newServer) {
+        synchronized (updateLock) {
+            this.lastUpdate = System.currentTimeMillis();
+            this.update(oldServer, newServer, false);
+        }
+    }
+
+    /**
+     * apply a server state that was fetched from the API because status updates were missed
+     * the state is dropped if the websocket delivered an update after the request was started
+     * @param server fetched server state
+     * @param fetchedAt time the request was started (epoch millis)
+     * @return was the state applied
+     */
+    public boolean resync(Server server, long fetchedAt) {
+        synchronized (updateLock) {
+            Server oldServer = this.currentServer;
+            if (this.lastUpdate >= fetchedAt || oldServer.getStatus() == server.getStatus()) {
+                return false;
+            }
+            logger.info("Missed status update of {}, status changed from {} to {}", this.getProxyName(),
+                    oldServer.getStatus(), server.getStatus());
+            this.update(oldServer, server, true);
+            return true;
+        }
+    }
+
+    /**
+     * reopen the websocket subscription
+     */
+    public void resubscribe() {
+        this.server.unsubscribe();
+        this.server.subscribe();
+        this.server.addStatusSubscriber(this);
+    }
+
+    /**
+     * @return last time a status update was received from the websocket (epoch millis)
+     */
+    public long getLastUpdate() {
+        return lastUpdate;
+    }
+
+    /**
+     * apply a status update and fire an {@link ExarotonServerStatusChangeEvent} if the status changed
+     * callers hold the update lock, so updates are applied one at a time and in order
+     * @param oldServer previous server state
+     * @param newServer new server state
+     * @param synthetic was the update fetched from the API instead of received from the websocket
+     */
+    private void update(Server oldServer, Server newServer, boolean synthetic) {
+        this.recordTransition(oldServer, newServer, synthetic);
+        this.currentServer = newServer;
         plugin.updateServer(newServer);
+        this.updateProxy(oldServer, newServer);
+        IdleStopManager idleStopManager = plugin.getIdleStopManager();
+        if (idleStopManager != null) {
+            idleStopManager.statusUpdate(this, newServer);
+        }
+        this.waiters.update(oldServer, newServer);
+        if (oldServer.getStatus() != newServer.getStatus()) {
+            proxy.getEventManager().fireAndForget(
+                    new ExarotonServerStatusChangeEvent(oldServer, newServer, this.getProxyName(), synthetic));
+        }
+    }
+
+    /**
+     * update the status metrics
+     * @param oldServer previous server state
+     * @param newServer new server state
+     * @param synthetic was the update fetched from the API instead of received from the websocket
+     */
+    private void recordTransition(Server oldServer, Server newServer, boolean synthetic) {
+        if (oldServer.getStatus() == newServer.getStatus()) {
+            return;
+        }
+        Metrics metrics = plugin.getMetrics();
+        metrics.transitions.increment(String.valueOf(newServer.getStatus()), synthetic ? "resync" : "websocket");
 
-        if (waitingFor.containsKey(newServer.getStatus())) {
-            for (CompletableFuture<Server> future: waitingFor.get(newServer.getStatus())) {
-                future.complete(newServer);
+        long now = System.currentTimeMillis();
+        if (newServer.hasStatus(ServerStatus.OFFLINE, ServerStatus.CRASHED)) {
+            this.startingSince = -1;
+        }
+        else if (newServer.hasStatus(ServerStatus.ONLINE)) {
+            if (this.startingSince > 0) {
+                metrics.startTime.observe((now - this.startingSince) / 1000.0);
             }
+            this.startingSince = -1;
         }
+        else if (oldServer.hasStatus(ServerStatus.OFFLINE, ServerStatus.CRASHED)) {
+            this.startingSince = now;
+        }
+    }
 
-        String serverName = this.serverInfo == null ? (this.name == null ? newServer.getName() : this.name) : this.serverInfo.getName();
+    /**
+     * add or remove the server from the proxy
+     * @param oldServer previous server state
+     * @param newServer new server state
+     */
+    private void updateProxy(Server oldServer, Server newServer) {
+        String serverName = this.getProxyName();
         if (!oldServer.hasStatus(ServerStatus.ONLINE) && newServer.hasStatus(ServerStatus.ONLINE)) {
-            if (proxy.getServer(serverName).isPresent()) {
-                this.sendInfo(Message.error("Server "+serverName+" already exists in velocity network"), true);
-                return;
+            Optional<RegisteredServer> existing = proxy.getServer(serverName);
+            if (existing.isPresent()) {
+                if (!plugin.keepOfflineServersRegistered()) {
+                    this.sendInfo(Message.error("Server "+serverName+" already exists in velocity network"), true);
+                    return;
+                }
+                // the server was kept registered while it was offline, its address might have changed
+                plugin.unregisterServer(existing.get().getServerInfo());
             }
             this.serverInfo = plugin.constructServerInfo(serverName, newServer);
-            proxy.registerServer(this.serverInfo);
-            this.sendInfo(Message.statusChange(serverName, true), expectedStatus == ServerStatus.ONLINE);
+            plugin.registerServer(this.serverInfo, newServer);
+            this.sendInfo(Message.statusChange(serverName, true), ServerStatus.ONLINE);
         }
         else if (oldServer.hasStatus(ServerStatus.ONLINE) && !newServer.hasStatus(ServerStatus.ONLINE)) {
             Optional<RegisteredServer> registeredServer = this.proxy.getServer(serverName);
@@ -110,8 +344,10 @@ public class ServerStatusListener extends ServerStatusSubscriber {
                 this.sendInfo(Message.error("Server " + serverName + " is not registered in velocity network!"), true);
                 return;
             }
-            proxy.unregisterServer(registeredServer.get().getServerInfo());
-            this.sendInfo(Message.statusChange(serverName, false), expectedStatus == ServerStatus.OFFLINE);
+            if (!plugin.keepOfflineServersRegistered()) {
+                plugin.unregisterServer(registeredServer.get().getServerInfo());
+            }
+            this.sendInfo(Message.statusChange(serverName, false), ServerStatus.OFFLINE);
         }
     }
 
@@ -119,7 +355,7 @@ public class ServerStatusListener extends ServerStatusSubscriber {
      * send message to all subscribed sources
      * @param message message
      */
-    public void sendInfo(Component message, boolean unsubscribe) {
+    public synchronized void sendInfo(Component message, boolean unsubscribe) {
         logger.info(Message.getFullString(message));
         if (sender != null && !sender.equals(proxy.getConsoleCommandSource())) {
             sender.sendMessage(message);
@@ -130,25 +366,88 @@ public class ServerStatusListener extends ServerStatusSubscriber {
         }
     }
 
+    /**
+     * send message to all subscribed sources
+     * @param message message
+     * @param reachedStatus unsubscribe the sender if this is the status it is waiting for
+     */
+    private synchronized void sendInfo(Component message, int reachedStatus) {
+        this.sendInfo(message, expectedStatus == reachedStatus);
+    }
+
     /**
      * unsubscribe from this server
      */
     public void unsubscribe() {
         this.server.unsubscribe();
+        this.waiters.cancelAll();
     }
 
 
     /**
      * wait until this server has reached this status
+     * the future fails if the server goes offline or crashes before reaching the status
      * @param status expected status
      * @return server with status
      */
     public CompletableFuture<Server> waitForStatus(int status) {
-        CompletableFuture<Server> future = new CompletableFuture<>();
-        if (!waitingFor.containsKey(status)) {
-            waitingFor.put(status, new ArrayList<>());
-        }
-        waitingFor.get(status).add(future);
-        return future;
+        return this.waitForStatus(null, status);
+    }
+
+    /**
+     * wait until this server has reached one of these statuses
+     * the future fails if the server goes offline or crashes before reaching the status
+     * or with a {@link java.util.concurrent.TimeoutException} after the timeout
+     * @param timeout maximum time to wait or null to wait forever
+     * @param statuses expected statuses
+     * @return server with status
+     */
+    public CompletableFuture<Server> waitForStatus(Duration timeout, int... statuses) {
+        return this.waiters.add(this.currentServer, timeout, statuses);
+    }
+
+    /**
+     * @return latest known state of the server
+     */
+    public Server getServer() {
+        return currentServer;
+    }
+
+    /**
+     * @return completed once the websocket subscription is open, fails if it couldn't be opened
+     */
+    CompletableFuture<Void> getSubscription() {
+        return subscription;
+    }
+
+    /**
+     * @return amount of pending status waiters
+     */
+    public int getWaiterCount() {
+        return waiters.size();
+    }
+
+    /**
+     * reasons to keep a subscription open
+     * transient actions (starting, stopping or restarting a server) don't add a reference, the subscription stays
+     * open while the server changes its status or is registered in the proxy.
+     */
+    public enum Reference {
+        /**
+         * server from the velocity config watched because of watch-servers
+         */
+        WATCH,
+        /**
+         * server from auto-start.servers
+         */
+        AUTO_START,
+        /**
+         * server added with /exaroton add
+         */
+        COMMAND,
+        /**
+         * server watched through the plugin API
+         */
+        API
     }
 }
@@ -0,0 +1,320 @@
+package com.exaroton.velocity;
+
+import com.exaroton.api.APIException;
+import com.exaroton.api.server.Server;
+import com.velocitypowered.api.scheduler.ScheduledTask;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * thread safe registry of server status listeners
+ * there is at most one listener (and websocket subscription) per server.
+ * Subscriptions that are no longer in use are closed after an idle timeout or earlier if there are too many.
+ */
+public class StatusListenerRegistry {
+
+    private final ExarotonPlugin plugin;
+
+    /**
+     * server id -> status listener
+     */
+    private final ConcurrentHashMap<String, ServerStatusListener> listeners = new ConcurrentHashMap<>();
+
+    /**
+     * proxy name -> status listener or null if it has to be rebuilt
+     */
+    private volatile Map<String, ServerStatusListener> nameIndex;
+
+    /**
+     * time in milliseconds after which unused subscriptions are closed
+     */
+    private volatile long idleTimeout = TimeUnit.MINUTES.toMillis(5);
+
+    /**
+     * maximum amount of subscriptions or 0 for no limit
+     */
+    private volatile int maxSubscriptions = 0;
+
+    /**
+     * task closing unused subscriptions
+     */
+    private ScheduledTask evictTask;
+
+    public StatusListenerRegistry(ExarotonPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * start closing unused subscriptions
+     * calling this again replaces the previous limits
+     * @param idleTimeout time in milliseconds after which unused subscriptions are closed
+     * @param maxSubscriptions maximum amount of subscriptions or 0 for no limit
+     */
+    public synchronized void start(long idleTimeout, int maxSubscriptions) {
+        this.idleTimeout = idleTimeout;
+        this.maxSubscriptions = maxSubscriptions;
+        if (this.evictTask != null) {
+            this.evictTask.cancel();
+        }
+        long interval = Math.max(TimeUnit.SECONDS.toMillis(1), Math.min(TimeUnit.SECONDS.toMillis(30), idleTimeout / 4));
+        this.evictTask = plugin.getProxy().getScheduler().buildTask(plugin, this::evictIdle)
+                .repeat(interval, TimeUnit.MILLISECONDS)
+                .schedule();
+    }
+
+    /**
+     * get the listener for a server or subscribe to the server if there is none
+     * creating and updating the listener is atomic for each server. The websocket subscription is opened by the
+     * caller that created the listener after the server is unlocked, other callers wait until it is open.
+     * @param server server to listen to
+     * @param update applied to the new or existing listener while the server is locked
+     * @return status listener
+     * @throws SubscribeException failed to subscribe to the server, the listener is removed again
+     */
+    public ServerStatusListener getOrCreate(Server server, Consumer<ServerStatusListener> update) {
+        int max = this.maxSubscriptions;
+        if (max > 0 && listeners.size() >= max && !listeners.containsKey(server.getId())) {
+            this.evictForCapacity(max);
+        }
+
+        ServerStatusListener[] created = {null};
+        ServerStatusListener result = listeners.compute(server.getId(), (id, listener) -> {
+            if (listener == null) {
+                listener = new ServerStatusListener(plugin, server);
+                created[0] = listener;
+            }
+            update.accept(listener.touch());
+            return listener;
+        });
+        // the update might have changed the proxy name
+        this.nameIndex = null;
+
+        if (created[0] != null) {
+            this.subscribe(result);
+        }
+        else {
+            try {
+                result.getSubscription().join();
+            } catch (CompletionException | CancellationException e) {
+                throw new SubscribeException(server, e.getCause() instanceof APIException ? (APIException) e.getCause() : null);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * open the websocket subscription of a new listener
+     * @param listener listener that was just created
+     * @throws SubscribeException failed to subscribe to the server, the listener is removed again
+     */
+    private void subscribe(ServerStatusListener listener) {
+        Server server = listener.getServer();
+        try {
+            plugin.getApiScheduler().run(ApiScheduler.Endpoint.SUBSCRIBE, server::subscribe);
+        } catch (APIException e) {
+            listeners.remove(server.getId(), listener);
+            this.nameIndex = null;
+            listener.getSubscription().completeExceptionally(e);
+            throw new SubscribeException(server, e);
+        }
+        server.addStatusSubscriber(listener);
+        listener.getSubscription().complete(null);
+
+        // the listener might have been removed while the subscription was opened
+        if (listeners.get(server.getId()) != listener) {
+            listener.unsubscribe();
+        }
+    }
+
+    /**
+     * add a listener whose subscription is already open
+     * @param listener status listener
+     */
+    void register(ServerStatusListener listener) {
+        listener.getSubscription().complete(null);
+        listeners.put(listener.getServer().getId(), listener);
+        this.nameIndex = null;
+    }
+
+    /**
+     * @param serverId server id
+     * @return status listener or null
+     */
+    public ServerStatusListener get(String serverId) {
+        return listeners.get(serverId);
+    }
+
+    /**
+     * find the listener of a server by its name in the proxy
+     * @param name server name in the proxy
+     * @return status listener or null
+     */
+    public ServerStatusListener findByProxyName(String name) {
+        Map<String, ServerStatusListener> index = this.nameIndex;
+        if (index != null) {
+            ServerStatusListener listener = index.get(name);
+            if (listener == null || listener.getProxyName().equals(name)) {
+                return listener;
+            }
+        }
+
+        index = new HashMap<>(listeners.size() * 2);
+        for (ServerStatusListener listener : listeners.values()) {
+            index.putIfAbsent(listener.getProxyName(), listener);
+        }
+        this.nameIndex = index;
+        return index.get(name);
+    }
+
+    /**
+     * unsubscribe from a server and remove its listener
+     * @param serverId server id
+     * @return was a listener removed
+     */
+    public boolean remove(String serverId) {
+        boolean[] removed = {false};
+        listeners.computeIfPresent(serverId, (id, listener) -> {
+            listener.unsubscribe();
+            removed[0] = true;
+            return null;
+        });
+        if (removed[0]) {
+            this.nameIndex = null;
+        }
+        return removed[0];
+    }
+
+    /**
+     * reopen the websocket subscription of a listener if it is still registered
+     * @param candidate status listener
+     * @return was the subscription reopened
+     */
+    public boolean resubscribe(ServerStatusListener candidate) {
+        String id = candidate.getServer().getId();
+        if (listeners.get(id) != candidate) {
+            return false;
+        }
+        try {
+            plugin.getApiScheduler().run(ApiScheduler.Endpoint.SUBSCRIBE, candidate::resubscribe);
+        } catch (APIException e) {
+            plugin.getLogger().warn("Failed to resubscribe to {}: {}", candidate.getProxyName(), e.getMessage());
+            return false;
+        }
+
+        // the listener might have been removed while the subscription was reopened
+        if (listeners.get(id) != candidate) {
+            candidate.unsubscribe();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * close subscriptions that haven't been used for the idle timeout
+     * @return amount of closed subscriptions
+     */
+    public int evictIdle() {
+        long idleSince = System.currentTimeMillis() - idleTimeout;
+        int evicted = 0;
+        for (ServerStatusListener listener : listeners.values()) {
+            if (listener.isInUse()) {
+                listener.touch();
+            }
+            else if (listener.getLastUsed() <= idleSince && this.evict(listener, idleSince)) {
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * close the least recently used unused subscriptions until there is space for a new one
+     * subscriptions that are in use are never closed, so the limit can be exceeded by them
+     * @param max maximum amount of subscriptions
+     */
+    private void evictForCapacity(int max) {
+        List<ServerStatusListener> unused = new ArrayList<>();
+        for (ServerStatusListener listener : listeners.values()) {
+            if (!listener.isInUse()) {
+                unused.add(listener);
+            }
+        }
+        unused.sort(Comparator.comparingLong(ServerStatusListener::getLastUsed));
+        for (ServerStatusListener listener : unused) {
+            if (listeners.size() < max) {
+                return;
+            }
+            this.evict(listener, Long.MAX_VALUE);
+        }
+        if (listeners.size() >= max) {
+            plugin.getLogger().warn("{} status subscriptions are in use, exceeding the limit of {}", listeners.size(), max);
+        }
+    }
+
+    /**
+     * close a subscription if it is still unused
+     * @param candidate listener to remove
+     * @param idleSince only remove the listener if it wasn't used after this time (epoch millis)
+     * @return was the listener removed
+     */
+    private boolean evict(ServerStatusListener candidate, long idleSince) {
+        boolean[] removed = {false};
+        listeners.computeIfPresent(candidate.getServer().getId(), (id, listener) -> {
+            if (listener != candidate || listener.getLastUsed() > idleSince || listener.isInUse()) {
+                return listener;
+            }
+            plugin.getLogger().debug("Closing unused status subscription for {}", listener.getProxyName());
+            listener.unsubscribe();
+            removed[0] = true;
+            return null;
+        });
+        if (removed[0]) {
+            this.nameIndex = null;
+        }
+        return removed[0];
+    }
+
+    /**
+     * @return all listeners (read only view)
+     */
+    public Collection<ServerStatusListener> getListeners() {
+        return Collections.unmodifiableCollection(listeners.values());
+    }
+
+    /**
+     * @return amount of listeners
+     */
+    public int size() {
+        return listeners.size();
+    }
+
+    /**
+     * thrown if a status subscription couldn't be opened, e.g. because the API rate limit couldn't be acquired
+     */
+    public static class SubscribeException extends RuntimeException {
+
+        /**
+         * @param server server that couldn't be subscribed to
+         * @param cause API error or null
+         */
+        public SubscribeException(Server server, APIException cause) {
+            super("Failed to subscribe to " + server.getAddress() + (cause == null ? "" : ": " + cause.getMessage()), cause);
+        }
+
+        @Override
+        public synchronized APIException getCause() {
+            return (APIException) super.getCause();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.exaroton.velocity;
+
+import com.exaroton.api.server.Server;
+import com.exaroton.api.server.ServerStatus;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * futures waiting for a server to reach a status
+ * waiters remove themselves when they complete (successfully, exceptionally, by timeout or cancellation)
+ */
+final class StatusWaiters {
+
+    /**
+     * pending waiters
+     */
+    private final Set<Waiter> waiters = ConcurrentHashMap.newKeySet();
+
+    /**
+     * register a waiter
+     * @param current current server state, the waiter completes immediately if it already has one of the statuses
+     * @param timeout maximum time to wait or null to wait forever
+     * @param statuses expected statuses
+     * @return future completed with the server once it has one of the statuses
+     */
+    CompletableFuture<Server> add(Server current, Duration timeout, int... statuses) {
+        Waiter waiter = new Waiter(statuses);
+        waiters.add(waiter);
+        waiter.future.whenComplete((server, e) -> waiters.remove(waiter));
+        if (timeout != null) {
+            waiter.future.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        // the status might have changed before the waiter was registered
+        if (current != null && current.hasStatus(statuses)) {
+            waiter.future.complete(current);
+        }
+        return waiter.future;
+    }
+
+    /**
+     * complete waiters after a status update
+     * waiters fail if the server goes offline or crashes unless they are waiting for that status. Updates of a server
+     * that already was offline (e.g. the initial status or a resync) don't fail waiters, so it is possible to wait for
+     * an offline server to start.
+     * @param oldServer previous server state or null if unknown
+     * @param server updated server
+     */
+    void update(Server oldServer, Server server) {
+        boolean wentOffline = server.hasStatus(ServerStatus.OFFLINE, ServerStatus.CRASHED)
+                && oldServer != null && !oldServer.hasStatus(ServerStatus.OFFLINE, ServerStatus.CRASHED);
+        for (Waiter waiter : waiters) {
+            if (server.hasStatus(waiter.statuses)) {
+                waiter.future.complete(server);
+            }
+            else if (wentOffline) {
+                waiter.future.completeExceptionally(new IllegalStateException("Server " + server.getAddress()
+                        + " went " + (server.hasStatus(ServerStatus.CRASHED) ? "crashed" : "offline")
+                        + " before reaching the expected status"));
+            }
+        }
+    }
+
+    /**
+     * cancel all pending waiters
+     */
+    void cancelAll() {
+        for (Waiter waiter : waiters) {
+            waiter.future.cancel(false);
+        }
+    }
+
+    /**
+     * @return amount of pending waiters
+     */
+    int size() {
+        return waiters.size();
+    }
+
+    private static final class Waiter {
+        private final int[] statuses;
+        private final CompletableFuture<Server> future = new CompletableFuture<>();
+
+        private Waiter(int[] statuses) {
+            this.statuses = statuses;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.exaroton.velocity;
 
+import com.exaroton.api.APIException;
 import com.velocitypowered.api.command.CommandSource;
 import org.slf4j.Logger;
 
@@ -83,6 +84,21 @@ public abstract class SubCommand {
         return null;
     }
 
+    /**
+     * report an API exception to the command sender
+     * requests rejected by the circuit breaker are not logged again
+     * @param sender command sender
+     * @param exception API exception
+     */
+    protected void apiError(CommandSource sender, APIException exception) {
+        if (exception instanceof CircuitBreaker.OpenException) {
+            sender.sendMessage(Message.apiUnavailable(((CircuitBreaker.OpenException) exception).getRetryIn()));
+            return;
+        }
+        logger.error("An API Error occurred!", exception);
+        sender.sendMessage(Message.API_ERROR);
+    }
+
     /**
      * suggest possible options for tab completion
      * @param sender command sender
@@ -0,0 +1,186 @@
+package com.exaroton.velocity;
+
+import com.exaroton.api.APIException;
+import com.exaroton.api.server.Server;
+import com.exaroton.api.server.ServerStatus;
+import org.slf4j.Logger;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * detect status subscriptions that stopped receiving updates
+ * the server list is fetched periodically in a single request and compared with the state known to each listener.
+ * Missed status changes are applied to the listener and its websocket is reopened with a backoff. Subscriptions of
+ * servers that are starting or stopping are also reopened if they haven't received an update for a while, even if
+ * the fetched status still matches.
+ */
+public class SubscriptionSupervisor {
+
+    /**
+     * time in milliseconds after which a subscription of a starting or stopping server is considered stale
+     */
+    private static final long STALE_TIMEOUT = TimeUnit.MINUTES.toMillis(5);
+
+    private final ExarotonPlugin plugin;
+
+    private final Logger logger;
+
+    /**
+     * backoff between reconnects of the same subscription
+     */
+    private final RetryPolicy reconnectPolicy;
+
+    /**
+     * server id -> reconnect state of subscriptions that missed updates
+     */
+    private final Map<String, Reconnect> reconnects = new ConcurrentHashMap<>();
+
+    /**
+     * is a check running
+     */
+    private final AtomicBoolean checking = new AtomicBoolean();
+
+    /**
+     * @param plugin exaroton plugin
+     * @param reconnectDelay delay before the second reconnect of a subscription in milliseconds
+     * @param maxReconnectDelay maximum delay between reconnects of a subscription in milliseconds
+     */
+    public SubscriptionSupervisor(ExarotonPlugin plugin, long reconnectDelay, long maxReconnectDelay) {
+        this.plugin = plugin;
+        this.logger = plugin.getLogger();
+        this.reconnectPolicy = new RetryPolicy(Integer.MAX_VALUE, reconnectDelay, maxReconnectDelay);
+    }
+
+    /**
+     * start checking subscriptions
+     * @param interval time between checks in milliseconds
+     */
+    public void start(long interval) {
+        plugin.getProxy().getScheduler().buildTask(plugin, this::checkAsync)
+                .delay(interval, TimeUnit.MILLISECONDS)
+                .repeat(interval, TimeUnit.MILLISECONDS)
+                .schedule();
+    }
+
+    /**
+     * check all subscriptions in the background
+     * does nothing if a check is already running
+     */
+    public void checkAsync() {
+        if (!checking.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            plugin.getAsyncExecutor().execute(() -> {
+                try {
+                    this.check();
+                } finally {
+                    checking.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            checking.set(false);
+            logger.warn("Failed to schedule subscription check", e);
+        }
+    }
+
+    /**
+     * compare all listeners with a freshly fetched server list
+     * @return amount of listeners that missed a status change or stopped receiving updates
+     */
+    public int check() {
+        StatusListenerRegistry listeners = plugin.getStatusListeners();
+        reconnects.keySet().removeIf(id -> listeners.get(id) == null);
+        if (listeners.size() == 0) {
+            return 0;
+        }
+
+        long fetchStart = System.currentTimeMillis();
+        ServerRegistry registry;
+        try {
+            registry = plugin.fetchRegistry();
+        } catch (CircuitBreaker.OpenException e) {
+            logger.debug("Skipped subscription check: {}", e.getMessage());
+            return 0;
+        } catch (APIException e) {
+            logger.warn("Failed to fetch server list to check status subscriptions", e);
+            return 0;
+        }
+
+        int drifted = 0;
+        for (ServerStatusListener listener : listeners.getListeners()) {
+            String id = listener.getServer().getId();
+            Reconnect reconnect = reconnects.get(id);
+            if (reconnect != null && listener.getLastUpdate() > reconnect.last) {
+                // the subscription received updates again
+                reconnects.remove(id);
+            }
+
+            Server fetched = registry.getById(id);
+            if (fetched == null || listener.getLastUpdate() >= fetchStart) {
+                continue;
+            }
+
+            if (fetched.getStatus() != listener.getServer().getStatus()) {
+                if (!listener.resync(fetched, fetchStart)) {
+                    // a websocket update arrived in the meantime
+                    continue;
+                }
+            }
+            else if (!isStale(listener, fetchStart)) {
+                continue;
+            }
+            drifted++;
+            reconnect = reconnects.computeIfAbsent(id, key -> new Reconnect());
+            long now = System.currentTimeMillis();
+            if (now >= reconnect.next) {
+                reconnect.attempts++;
+                reconnect.last = now;
+                reconnect.next = now + reconnectPolicy.getDelay(reconnect.attempts);
+                logger.info("Reconnecting status subscription of {} (attempt {})", listener.getProxyName(), reconnect.attempts);
+                listeners.resubscribe(listener);
+            }
+        }
+        return drifted;
+    }
+
+    /**
+     * a server that is starting or stopping changes its status within minutes, so a subscription that didn't
+     * receive any update for longer than that has most likely lost its connection
+     * @param listener status listener
+     * @param now current time (epoch millis)
+     * @return is the subscription stale
+     */
+    private static boolean isStale(ServerStatusListener listener, long now) {
+        return !listener.getServer().hasStatus(ServerStatus.ONLINE, ServerStatus.OFFLINE, ServerStatus.CRASHED)
+                && now - listener.getLastUpdate() > STALE_TIMEOUT;
+    }
+
+    /**
+     * @return amount of subscriptions that missed updates and haven't received one since
+     */
+    public int getReconnectingCount() {
+        return reconnects.size();
+    }
+
+    private static final class Reconnect {
+        /**
+         * reconnects since the last time the subscription was up to date
+         */
+        private int attempts = 0;
+
+        /**
+         * time of the last reconnect (epoch millis)
+         */
+        private long last = 0;
+
+        /**
+         * earliest time of the next reconnect (epoch millis)
+         */
+        private long next = 0;
+    }
+}
@@ -0,0 +1,166 @@
+package com.exaroton.velocity;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * hashed timer wheel for large amounts of coarse deadlines
+ * scheduling and cancelling are O(1), each tick only looks at one bucket.
+ * The wheel doesn't have its own thread, {@link #advanceTo(long)} has to be called regularly. It catches up on
+ * ticks that were missed because the caller ran late.
+ */
+public class TimerWheel {
+
+    /**
+     * duration of a tick in milliseconds
+     */
+    private final long tickDuration;
+
+    /**
+     * deadlines hashed by their tick
+     */
+    private final List<Set<Timeout>> buckets;
+
+    /**
+     * amount of ticks since the wheel was created
+     */
+    private long currentTick = 0;
+
+    /**
+     * time the last tick started (monotonic milliseconds)
+     */
+    private long tickTime;
+
+    /**
+     * @param tickDuration duration of a tick in milliseconds
+     * @param size amount of buckets
+     */
+    public TimerWheel(long tickDuration, int size) {
+        this(tickDuration, size, now());
+    }
+
+    /**
+     * @param tickDuration duration of a tick in milliseconds
+     * @param size amount of buckets
+     * @param startTime current time (monotonic milliseconds, see {@link #now()})
+     */
+    public TimerWheel(long tickDuration, int size, long startTime) {
+        if (tickDuration <= 0 || size <= 0) {
+            throw new IllegalArgumentException("Invalid timer wheel size!");
+        }
+        this.tickDuration = tickDuration;
+        this.tickTime = startTime;
+        this.buckets = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            this.buckets.add(new HashSet<>());
+        }
+    }
+
+    /**
+     * @return duration of a tick in milliseconds
+     */
+    public long getTickDuration() {
+        return tickDuration;
+    }
+
+    /**
+     * run a task after a delay
+     * the delay is rounded up to full ticks
+     * @param delay delay in milliseconds
+     * @param task task to run
+     * @return timeout that can be cancelled
+     */
+    public synchronized Timeout schedule(long delay, Runnable task) {
+        long ticks = Math.max(1, (delay + tickDuration - 1) / tickDuration);
+        Timeout timeout = new Timeout(currentTick + ticks, task);
+        bucket(timeout.deadline).add(timeout);
+        return timeout;
+    }
+
+    /**
+     * @return monotonic clock in milliseconds
+     */
+    public static long now() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    /**
+     * advance the wheel by all ticks that elapsed until now and run expired tasks
+     * @param now current time (monotonic milliseconds, see {@link #now()})
+     * @return amount of ticks
+     */
+    public int advanceTo(long now) {
+        long ticks;
+        synchronized (this) {
+            ticks = Math.max(0, (now - tickTime) / tickDuration);
+            tickTime += ticks * tickDuration;
+        }
+        for (long i = 0; i < ticks; i++) {
+            this.tick();
+        }
+        return (int) Math.min(Integer.MAX_VALUE, ticks);
+    }
+
+    /**
+     * advance the wheel by one tick and run all expired tasks
+     * tasks are run on the calling thread
+     */
+    public void tick() {
+        List<Timeout> expired = new ArrayList<>();
+        synchronized (this) {
+            currentTick++;
+            Iterator<Timeout> iterator = bucket(currentTick).iterator();
+            while (iterator.hasNext()) {
+                Timeout timeout = iterator.next();
+                if (timeout.deadline <= currentTick) {
+                    iterator.remove();
+                    timeout.expired = true;
+                    expired.add(timeout);
+                }
+            }
+        }
+        for (Timeout timeout : expired) {
+            timeout.task.run();
+        }
+    }
+
+    /**
+     * @return amount of pending timeouts
+     */
+    public synchronized int size() {
+        int size = 0;
+        for (Set<Timeout> bucket : buckets) {
+            size += bucket.size();
+        }
+        return size;
+    }
+
+    private Set<Timeout> bucket(long tick) {
+        return buckets.get((int) (tick % buckets.size()));
+    }
+
+    public final class Timeout {
+        private final long deadline;
+        private final Runnable task;
+        private boolean expired = false;
+
+        private Timeout(long deadline, Runnable task) {
+            this.deadline = deadline;
+            this.task = task;
+        }
+
+        /**
+         * cancel this timeout
+         * @return was the timeout cancelled before it expired
+         */
+        public boolean cancel() {
+            synchronized (TimerWheel.this) {
+                return !expired && bucket(deadline).remove(this);
+            }
+        }
+    }
+}
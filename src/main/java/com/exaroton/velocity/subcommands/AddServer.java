@@ -6,6 +6,7 @@ import com.exaroton.api.server.ServerStatus;
 import com.exaroton.velocity.ExarotonPlugin;
 import com.exaroton.velocity.Message;
 import com.exaroton.velocity.ServerStatusListener;
+import com.exaroton.velocity.StatusListenerRegistry;
 import com.exaroton.velocity.SubCommand;
 import com.velocitypowered.api.command.CommandSource;
 
@@ -34,7 +35,7 @@ public class AddServer extends SubCommand {
                 return;
             }
 
-            ServerStatusListener listener = plugin.listenToStatus(server, sender, null, plugin.findServerName(server.getAddress()), ServerStatus.ONLINE);
+            ServerStatusListener listener = plugin.listenToStatus(server, sender, null, plugin.findServerName(server.getAddress()), ServerStatus.ONLINE, ServerStatusListener.Reference.COMMAND);
             String name = listener.getName(server);
             sender.sendMessage(Message.watching(name));
 
@@ -43,13 +44,14 @@ public class AddServer extends SubCommand {
                     sender.sendMessage(Message.error("Failed to add server: A server with the name " + name + " already exists in proxy."));
                 }
                 else {
-                    plugin.getProxy().registerServer(plugin.constructServerInfo(name, server));
+                    plugin.registerServer(plugin.constructServerInfo(name, server), server);
                     sender.sendMessage(Message.added(name));
                 }
             }
         } catch (APIException e) {
-            logger.error("An API Error occurred!", e);
-            sender.sendMessage(Message.API_ERROR);
+            this.apiError(sender, e);
+        } catch (StatusListenerRegistry.SubscribeException e) {
+            this.apiError(sender, e.getCause());
         }
     }
 
@@ -38,11 +38,10 @@ public class RemoveServer extends SubCommand {
 
             Server server = plugin.findServer(name, false);
             plugin.stopListeningToStatus(server.getId());
-            plugin.getProxy().unregisterServer(velocityServer.get().getServerInfo());
+            plugin.unregisterServer(velocityServer.get().getServerInfo());
             sender.sendMessage(Message.removed(name));
         } catch (APIException e) {
-            logger.error("An API Error occurred!", e);
-            sender.sendMessage(Message.API_ERROR);
+            this.apiError(sender, e);
         }
     }
 
@@ -0,0 +1,129 @@
+package com.exaroton.velocity.subcommands;
+
+import com.exaroton.velocity.ApiScheduler;
+import com.exaroton.velocity.CircuitBreaker;
+import com.exaroton.velocity.ExarotonPlugin;
+import com.exaroton.velocity.Message;
+import com.exaroton.velocity.Metrics;
+import com.exaroton.velocity.PluginExecutor;
+import com.exaroton.velocity.SubCommand;
+import com.exaroton.velocity.SubscriptionSupervisor;
+import com.velocitypowered.api.command.CommandSource;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+public class ShowStats extends SubCommand {
+
+    /**
+     * @param plugin exaroton plugin
+     */
+    public ShowStats(ExarotonPlugin plugin) {
+        super("stats", "Show request, cache and subscription statistics", plugin);
+    }
+
+    @Override
+    public void execute(CommandSource sender, String[] args) {
+        Metrics metrics = plugin.getMetrics();
+        ApiScheduler scheduler = plugin.getApiScheduler();
+        Map<String, String> stats = new LinkedHashMap<>();
+
+        for (ApiScheduler.Endpoint endpoint : ApiScheduler.Endpoint.values()) {
+            String label = endpoint.getLabel();
+            long count = metrics.apiLatency.getCount(label);
+            if (count == 0 && metrics.apiRequests.get(label, "rejected") == 0) {
+                continue;
+            }
+            stats.put("API " + label, String.format(Locale.ROOT, "%d ok, %d errors, %d failed, %d rejected, p50 %s, p95 %s",
+                    metrics.apiRequests.get(label, "success"),
+                    metrics.apiRequests.get(label, "error"),
+                    metrics.apiRequests.get(label, "failure"),
+                    metrics.apiRequests.get(label, "rejected"),
+                    duration(metrics.apiLatency.getQuantile(.5, label)),
+                    duration(metrics.apiLatency.getQuantile(.95, label))));
+        }
+
+        stats.put("Rate limit", String.format(Locale.ROOT, "%d waiting, %d retries, avg wait %.0fms / %.0fms / %.0fms (interactive / API / background)",
+                scheduler.getQueueLength(),
+                scheduler.getRetryCount(),
+                scheduler.getAverageWaitMillis(ApiScheduler.Priority.INTERACTIVE),
+                scheduler.getAverageWaitMillis(ApiScheduler.Priority.API),
+                scheduler.getAverageWaitMillis(ApiScheduler.Priority.BACKGROUND)));
+
+        CircuitBreaker breaker = scheduler.getCircuitBreaker();
+        stats.put("Circuit breaker", breaker.getState().name().toLowerCase(Locale.ROOT)
+                + ", opened " + breaker.getOpenCount() + " times");
+
+        long age = plugin.getServerCacheAge();
+        stats.put("Server cache", String.format(Locale.ROOT, "%d hits, %d stale, %d misses, %s",
+                metrics.cacheLookups.get("hit"),
+                metrics.cacheLookups.get("stale"),
+                metrics.cacheLookups.get("miss"),
+                age < 0 ? "empty" : "age " + age / 1000 + "s"));
+
+        stats.put("Tab completion", String.format(Locale.ROOT, "%d requests, p50 %s, p95 %s",
+                metrics.completionTime.getCount(),
+                duration(metrics.completionTime.getQuantile(.5)),
+                duration(metrics.completionTime.getQuantile(.95))));
+
+        long websocket = 0;
+        long resync = 0;
+        for (Map.Entry<List<String>, Long> entry : metrics.transitions.getAll().entrySet()) {
+            if (entry.getKey().get(1).equals("resync")) {
+                resync += entry.getValue();
+            } else {
+                websocket += entry.getValue();
+            }
+        }
+        stats.put("Status changes", websocket + " received, " + resync + " missed");
+
+        stats.put("Server starts", String.format(Locale.ROOT, "%d, avg %.0fs until online",
+                metrics.startTime.getCount(), metrics.startTime.getAverage()));
+
+        SubscriptionSupervisor supervisor = plugin.getSubscriptionSupervisor();
+        stats.put("Subscriptions", plugin.getStatusListeners().size() + " open"
+                + (supervisor == null ? "" : ", " + supervisor.getReconnectingCount() + " reconnecting"));
+
+        PluginExecutor executor = plugin.getAsyncExecutor();
+        stats.put("Executor", String.format(Locale.ROOT, "%d/%d threads active, %d queued, %d rejected",
+                executor.getActiveCount(), executor.getThreadCount(), executor.getQueueDepth(), executor.getRejectedCount()));
+
+        long apiCalls = 0;
+        for (long calls : metrics.pluginApiCalls.getAll().values()) {
+            apiCalls += calls;
+        }
+        stats.put("Plugin API calls", String.valueOf(apiCalls));
+
+        sender.sendMessage(Message.stats(stats));
+    }
+
+    /**
+     * @param seconds upper bound of a histogram bucket in seconds
+     * @return human readable duration
+     */
+    private static String duration(double seconds) {
+        if (Double.isInfinite(seconds)) {
+            return "slow";
+        }
+        if (seconds < .001) {
+            return String.format(Locale.ROOT, "<%.1fms", seconds * 1000);
+        }
+        if (seconds < 1) {
+            return "<" + Math.round(seconds * 1000) + "ms";
+        }
+        return "<" + (seconds == Math.rint(seconds) ? String.valueOf((long) seconds) : String.valueOf(seconds)) + "s";
+    }
+
+    @Override
+    public List<String> onTabComplete(CommandSource sender, String[] args) {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public String getPermission() {
+        return "exaroton.stats";
+    }
+}
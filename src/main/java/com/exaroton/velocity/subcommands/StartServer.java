@@ -3,9 +3,11 @@ package com.exaroton.velocity.subcommands;
 import com.exaroton.api.APIException;
 import com.exaroton.api.server.Server;
 import com.exaroton.api.server.ServerStatus;
+import com.exaroton.velocity.ApiScheduler;
 import com.exaroton.velocity.ExarotonPlugin;
 import com.exaroton.velocity.Message;
 import com.exaroton.velocity.ServerStatusListener;
+import com.exaroton.velocity.StatusListenerRegistry;
 import com.exaroton.velocity.SubCommand;
 import com.velocitypowered.api.command.CommandSource;
 
@@ -40,11 +42,12 @@ public class StartServer extends SubCommand {
             }
 
             ServerStatusListener listener = plugin.listenToStatus(server, sender, null, plugin.findServerName(server.getAddress()), ServerStatus.ONLINE);
-            server.start();
+            plugin.getApiScheduler().run(ApiScheduler.Endpoint.START, server::start);
             sender.sendMessage(Message.action("Starting", listener.getName(server)));
         } catch (APIException e) {
-            logger.error("An API Error occurred!", e);
-            sender.sendMessage(Message.API_ERROR);
+            this.apiError(sender, e);
+        } catch (StatusListenerRegistry.SubscribeException e) {
+            this.apiError(sender, e.getCause());
         }
     }
 
@@ -40,11 +40,16 @@ public class SwitchServer extends SubCommand {
             }
 
             source.sendMessage(Message.switching(plugin.findServerName(server.getAddress(), server.getName())));
-            ExarotonPluginAPI.switchServer((Player) source, server);
+            ExarotonPluginAPI.switchServer((Player) source, server, ExarotonPluginAPI.DEFAULT_SWITCH_TIMEOUT)
+                    .whenComplete((result, e) -> {
+                        if (e != null) {
+                            logger.error("Failed to execute switch command", e);
+                            source.sendMessage(Message.error("Failed to execute switch command. Check your console for details."));
+                        }
+                    });
         } catch (APIException e) {
-            logger.error("An API Error occurred!", e);
-            source.sendMessage(Message.API_ERROR);
-        } catch (RuntimeException | InterruptedException e) {
+            this.apiError(source, e);
+        } catch (RuntimeException e) {
             logger.error("Failed to execute switch command", e);
             source.sendMessage(Message.error("Failed to execute switch command. Check your console for details."));
         }
@@ -0,0 +1,137 @@
+package com.exaroton.velocity;
+
+import com.exaroton.api.APIException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ApiSchedulerTest {
+
+    private ApiScheduler scheduler;
+
+    private ApiScheduler create(double rate, int burst, CircuitBreaker breaker) {
+        scheduler = new ApiScheduler(rate, burst, breaker, new RetryPolicy(3, 0, 0), new Metrics());
+        return scheduler;
+    }
+
+    @AfterEach
+    void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    void shutdownFailsWaitingRequests() throws Exception {
+        ApiScheduler scheduler = create(0.01, 1, new CircuitBreaker(5, 60_000));
+        assertEquals("first", scheduler.call(ApiScheduler.Endpoint.SERVERS, () -> "first"));
+
+        CompletableFuture<String> waiting = CompletableFuture.supplyAsync(() -> {
+            try {
+                return scheduler.call(ApiScheduler.Endpoint.SERVERS, () -> "second");
+            } catch (APIException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        long deadline = System.currentTimeMillis() + 5000;
+        while (scheduler.getQueueLength() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(1, scheduler.getQueueLength());
+
+        scheduler.shutdown();
+        ExecutionException e = assertThrows(ExecutionException.class, () -> waiting.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(APIException.class, e.getCause().getCause());
+        assertEquals(0, scheduler.getQueueLength());
+    }
+
+    @Test
+    void requestsFailAfterShutdown() {
+        CircuitBreaker breaker = new CircuitBreaker(5, 60_000);
+        ApiScheduler scheduler = create(10, 1, breaker);
+        scheduler.shutdown();
+        assertThrows(APIException.class, () -> scheduler.call(ApiScheduler.Endpoint.SERVERS, () -> "result"));
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void interruptedRequestsLeaveTheQueue() throws Exception {
+        ApiScheduler scheduler = create(0.01, 1, new CircuitBreaker(5, 60_000));
+        scheduler.call(ApiScheduler.Endpoint.SERVERS, () -> "first");
+
+        CompletableFuture<Throwable> failure = new CompletableFuture<>();
+        Thread thread = new Thread(() -> {
+            try {
+                scheduler.call(ApiScheduler.Endpoint.SERVERS, () -> "second");
+                failure.complete(null);
+            } catch (APIException e) {
+                failure.complete(e);
+            }
+        });
+        thread.start();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (scheduler.getQueueLength() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(1, scheduler.getQueueLength());
+
+        thread.interrupt();
+        assertInstanceOf(APIException.class, failure.get(5, TimeUnit.SECONDS));
+        assertEquals(0, scheduler.getQueueLength());
+    }
+
+    @Test
+    void transientFailuresOpenTheBreaker() {
+        CircuitBreaker breaker = new CircuitBreaker(2, 60_000);
+        ApiScheduler scheduler = create(1000, 100, breaker);
+        ApiScheduler.ApiCall<String> unavailable = () -> {
+            throw new APIException("HTTP 503 Service Unavailable");
+        };
+        ApiScheduler.ApiCall<String> notFound = () -> {
+            throw new APIException("HTTP 404 Not Found");
+        };
+
+        assertThrows(APIException.class, () -> scheduler.call(ApiScheduler.Endpoint.SERVERS, unavailable));
+        // client errors neither count as failures nor reset them
+        assertThrows(APIException.class, () -> scheduler.call(ApiScheduler.Endpoint.SERVERS, notFound));
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertThrows(APIException.class, () -> scheduler.call(ApiScheduler.Endpoint.SERVERS, unavailable));
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        assertThrows(CircuitBreaker.OpenException.class, () -> scheduler.call(ApiScheduler.Endpoint.SERVERS, () -> "result"));
+    }
+
+    @Test
+    void readRetriesTransientFailures() throws Exception {
+        ApiScheduler scheduler = create(1000, 100, new CircuitBreaker(5, 60_000));
+        AtomicInteger attempts = new AtomicInteger();
+        String result = scheduler.read(ApiScheduler.Endpoint.SERVERS, () -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new APIException("HTTP 429 Too Many Requests");
+            }
+            return "result";
+        });
+        assertEquals("result", result);
+        assertEquals(3, attempts.get());
+        assertEquals(2, scheduler.getRetryCount());
+    }
+
+    @Test
+    void readDoesNotRetryClientErrors() {
+        ApiScheduler scheduler = create(1000, 100, new CircuitBreaker(5, 60_000));
+        AtomicInteger attempts = new AtomicInteger();
+        assertThrows(APIException.class, () -> scheduler.read(ApiScheduler.Endpoint.SERVERS, () -> {
+            attempts.incrementAndGet();
+            throw new APIException("Server not found");
+        }));
+        assertEquals(1, attempts.get());
+    }
+}
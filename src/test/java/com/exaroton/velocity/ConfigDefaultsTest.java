@@ -0,0 +1,36 @@
+package com.exaroton.velocity;
+
+import com.moandjiezana.toml.Toml;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ConfigDefaultsTest {
+
+    private final Toml defaults = new Toml().read("watch-servers = true\n"
+            + "[auto-start]\n"
+            + "    enabled = false\n"
+            + "    servers = []\n");
+
+    @Test
+    void missingValuesAreAdded() {
+        Toml config = new Toml().read("[auto-start]\n"
+                + "    enabled = true\n");
+
+        Toml merged = ExarotonPlugin.addDefaults(config, defaults);
+        assertEquals(true, merged.getBoolean("watch-servers"));
+        assertEquals(true, merged.getBoolean("auto-start.enabled"));
+        assertEquals(0, merged.getList("auto-start.servers").size());
+    }
+
+    @Test
+    void completeConfigIsKept() {
+        Toml config = new Toml().read("watch-servers = false\n"
+                + "[auto-start]\n"
+                + "    enabled = true\n"
+                + "    servers = [\"test\"]\n");
+
+        assertSame(config, ExarotonPlugin.addDefaults(config, defaults));
+    }
+}
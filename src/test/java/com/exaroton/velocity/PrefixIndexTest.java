@@ -0,0 +1,53 @@
+package com.exaroton.velocity;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PrefixIndexTest {
+
+    private final PrefixIndex<Integer> index = PrefixIndex.of(List.of(
+            new PrefixIndex.Entry<>("survival", 1),
+            new PrefixIndex.Entry<>("creative", 2),
+            new PrefixIndex.Entry<>("survival", 3),
+            new PrefixIndex.Entry<>("skyblock", 4),
+            new PrefixIndex.Entry<>("survival-2", 5)));
+
+    private List<String> collect(String prefix, int limit) {
+        List<String> result = new ArrayList<>();
+        index.collect(prefix, limit, null, result);
+        return result;
+    }
+
+    @Test
+    void collectsSortedMatches() {
+        assertEquals(List.of("skyblock", "survival", "survival", "survival-2"), collect("s", 10));
+        assertEquals(List.of("creative"), collect("cr", 10));
+        assertEquals(List.of(), collect("x", 10));
+    }
+
+    @Test
+    void includesAllDuplicatesOfAnExactKey() {
+        assertEquals(List.of("survival", "survival", "survival-2"), collect("survival", 10));
+    }
+
+    @Test
+    void emptyPrefixMatchesEverything() {
+        assertEquals(5, collect("", 10).size());
+    }
+
+    @Test
+    void stopsAtLimit() {
+        assertEquals(List.of("skyblock", "survival"), collect("s", 2));
+    }
+
+    @Test
+    void appliesFilter() {
+        List<String> result = new ArrayList<>();
+        index.collect("surv", 10, value -> value > 2, result);
+        assertEquals(List.of("survival", "survival-2"), result);
+    }
+}
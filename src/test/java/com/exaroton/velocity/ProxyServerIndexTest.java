@@ -0,0 +1,25 @@
+package com.exaroton.velocity;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ProxyServerIndexTest {
+
+    @Test
+    void portIsRemoved() {
+        assertEquals("example.exaroton.me", ProxyServerIndex.stripPort("example.exaroton.me:25565"));
+        assertEquals("example.exaroton.me", ProxyServerIndex.stripPort("example.exaroton.me"));
+    }
+
+    @Test
+    void otherSuffixesAreKept() {
+        assertEquals("example.exaroton.me:", ProxyServerIndex.stripPort("example.exaroton.me:"));
+        assertEquals("example:lobby", ProxyServerIndex.stripPort("example:lobby"));
+    }
+
+    @Test
+    void caseIsKept() {
+        assertEquals("Example.exaroton.me", ProxyServerIndex.stripPort("Example.exaroton.me:25565"));
+    }
+}
@@ -0,0 +1,86 @@
+package com.exaroton.velocity;
+
+import com.exaroton.api.APIException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RetryPolicyTest {
+
+    private static APIException error(String message) {
+        return new APIException(message);
+    }
+
+    private static APIException networkError() {
+        return (APIException) new APIException("Failed to request data from exaroton API").initCause(new IOException());
+    }
+
+    @Test
+    void networkErrorsAreTransient() {
+        assertTrue(RetryPolicy.isTransient(networkError()));
+        assertTrue(RetryPolicy.isTransient((APIException) new APIException("Request timed out")
+                .initCause(new SocketTimeoutException())));
+        assertTrue(RetryPolicy.isTransient((APIException) new APIException("Request failed")
+                .initCause(new IllegalStateException(new TimeoutException()))));
+    }
+
+    @Test
+    void rateLimitAndServerErrorsAreTransient() {
+        assertTrue(RetryPolicy.isTransient(error("HTTP 429 Too Many Requests")));
+        assertTrue(RetryPolicy.isTransient(error("HTTP/1.1 503 Service Unavailable")));
+        assertTrue(RetryPolicy.isTransient(error("HTTP 500")));
+    }
+
+    @Test
+    void clientErrorsAreNotTransient() {
+        assertFalse(RetryPolicy.isTransient(error("Server not found")));
+        assertFalse(RetryPolicy.isTransient(error("HTTP 404 Not Found")));
+        assertFalse(RetryPolicy.isTransient((APIException) new APIException("Invalid response")
+                .initCause(new IllegalArgumentException())));
+    }
+
+    @Test
+    void numbersInMessagesAreNotStatusCodes() {
+        assertFalse(RetryPolicy.isTransient(error("Server 503 not found")));
+        assertFalse(RetryPolicy.isTransient(error("Too many requests, 500 servers")));
+        assertEquals(-1, RetryPolicy.getStatusCode(error("Port 429 is not available")));
+    }
+
+    @Test
+    void openBreakerIsNotTransient() {
+        assertFalse(RetryPolicy.isTransient(new CircuitBreaker.OpenException(1000)));
+    }
+
+    @Test
+    void readsStatusLines() {
+        assertEquals(429, RetryPolicy.getStatusCode(error("HTTP 429 Too Many Requests")));
+        assertEquals(502, RetryPolicy.getStatusCode(error("HTTP/2 502")));
+        assertEquals(-1, RetryPolicy.getStatusCode(error(null)));
+    }
+
+    @Test
+    void delayGrowsUpToMaximum() {
+        RetryPolicy policy = new RetryPolicy(5, 100, 400);
+        for (int i = 0; i < 100; i++) {
+            long first = policy.getDelay(1);
+            assertTrue(first >= 50 && first <= 100, "first delay " + first);
+            long third = policy.getDelay(3);
+            assertTrue(third >= 200 && third <= 400, "third delay " + third);
+            long capped = policy.getDelay(30);
+            assertTrue(capped >= 200 && capped <= 400, "capped delay " + capped);
+        }
+    }
+
+    @Test
+    void rejectsInvalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new RetryPolicy(0, 100, 400));
+        assertThrows(IllegalArgumentException.class, () -> new RetryPolicy(3, 500, 400));
+    }
+}
@@ -0,0 +1,48 @@
+package com.exaroton.velocity;
+
+import com.exaroton.api.server.ServerStatus;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StatusListenerRegistryTest {
+
+    private final ExarotonPlugin plugin = TestProxy.plugin(TestProxy.proxy());
+
+    private ServerStatusListener listener(String name) {
+        return new ServerStatusListener(plugin, TestServers.server(name, ServerStatus.ONLINE));
+    }
+
+    @Test
+    void idleListenersWithoutReferencesAreEvicted() {
+        StatusListenerRegistry registry = new StatusListenerRegistry(plugin);
+        registry.start(0, 0);
+        ServerStatusListener unpinned = listener("unpinned");
+        ServerStatusListener pinned = listener("pinned").retain(ServerStatusListener.Reference.WATCH);
+        registry.register(unpinned);
+        registry.register(pinned);
+
+        assertEquals(1, registry.evictIdle());
+        assertNull(registry.get(unpinned.getServer().getId()));
+        assertNotNull(registry.get(pinned.getServer().getId()));
+    }
+
+    @Test
+    void releasedListenersAreEvicted() {
+        StatusListenerRegistry registry = new StatusListenerRegistry(plugin);
+        registry.start(0, 0);
+        ServerStatusListener listener = listener("test")
+                .retain(ServerStatusListener.Reference.WATCH)
+                .retain(ServerStatusListener.Reference.API);
+        registry.register(listener);
+
+        assertTrue(listener.release(ServerStatusListener.Reference.API));
+        assertEquals(0, registry.evictIdle());
+        assertTrue(listener.release(ServerStatusListener.Reference.WATCH));
+        assertEquals(1, registry.evictIdle());
+        assertEquals(0, registry.size());
+    }
+}
@@ -0,0 +1,82 @@
+package com.exaroton.velocity;
+
+import com.exaroton.api.server.Server;
+import com.exaroton.api.server.ServerStatus;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StatusWaitersTest {
+
+    private final Server offline = TestServers.server("test", ServerStatus.OFFLINE);
+    private final Server starting = TestServers.server("test", ServerStatus.STARTING);
+    private final Server online = TestServers.server("test", ServerStatus.ONLINE);
+    private final Server crashed = TestServers.server("test", ServerStatus.CRASHED);
+
+    @Test
+    void waiterRegisteredWhileOfflineSurvivesOfflineUpdate() throws Exception {
+        StatusWaiters waiters = new StatusWaiters();
+        CompletableFuture<Server> future = waiters.add(offline, null, ServerStatus.ONLINE);
+
+        waiters.update(offline, offline);
+        assertFalse(future.isDone());
+
+        waiters.update(offline, starting);
+        waiters.update(starting, online);
+        assertSame(online, future.get());
+        assertEquals(0, waiters.size());
+    }
+
+    @Test
+    void initialOfflineUpdateDoesNotFail() {
+        StatusWaiters waiters = new StatusWaiters();
+        CompletableFuture<Server> future = waiters.add(null, null, ServerStatus.ONLINE);
+
+        waiters.update(null, offline);
+        assertFalse(future.isDone());
+    }
+
+    @Test
+    void transitionToOfflineFailsWaiters() {
+        StatusWaiters waiters = new StatusWaiters();
+        CompletableFuture<Server> future = waiters.add(starting, null, ServerStatus.ONLINE);
+
+        waiters.update(starting, crashed);
+        assertTrue(future.isCompletedExceptionally());
+        assertThrows(ExecutionException.class, future::get);
+        assertEquals(0, waiters.size());
+    }
+
+    @Test
+    void waiterForOfflineCompletesOnTransition() throws Exception {
+        StatusWaiters waiters = new StatusWaiters();
+        CompletableFuture<Server> future = waiters.add(online, null, ServerStatus.OFFLINE);
+
+        waiters.update(online, offline);
+        assertSame(offline, future.get());
+    }
+
+    @Test
+    void currentStatusCompletesImmediately() {
+        StatusWaiters waiters = new StatusWaiters();
+        assertTrue(waiters.add(online, null, ServerStatus.ONLINE).isDone());
+        assertEquals(0, waiters.size());
+    }
+
+    @Test
+    void cancelAllCancelsPendingWaiters() {
+        StatusWaiters waiters = new StatusWaiters();
+        CompletableFuture<Server> future = waiters.add(offline, null, ServerStatus.ONLINE);
+
+        waiters.cancelAll();
+        assertTrue(future.isCancelled());
+        assertEquals(0, waiters.size());
+    }
+}
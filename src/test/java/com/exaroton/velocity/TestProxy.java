@@ -0,0 +1,71 @@
+package com.exaroton.velocity;
+
+import com.velocitypowered.api.proxy.ProxyServer;
+import com.velocitypowered.api.scheduler.ScheduledTask;
+import com.velocitypowered.api.scheduler.Scheduler;
+import org.slf4j.helpers.NOPLogger;
+
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * stub proxy for tests
+ * no servers are registered and scheduled tasks never run
+ */
+final class TestProxy {
+
+    private TestProxy() {
+    }
+
+    /**
+     * @return proxy stub
+     */
+    static ProxyServer proxy() {
+        ScheduledTask task = stub(ScheduledTask.class, Map.of("cancel", args -> null));
+        Scheduler.TaskBuilder[] builder = {null};
+        builder[0] = stub(Scheduler.TaskBuilder.class, Map.of(
+                "delay", args -> builder[0],
+                "repeat", args -> builder[0],
+                "clearDelay", args -> builder[0],
+                "clearRepeat", args -> builder[0],
+                "schedule", args -> task));
+        Scheduler scheduler = stub(Scheduler.class, Map.of("buildTask", args -> builder[0]));
+        return stub(ProxyServer.class, Map.of(
+                "getScheduler", args -> scheduler,
+                "getServer", args -> Optional.empty()));
+    }
+
+    /**
+     * @param proxy proxy stub
+     * @return plugin that isn't initialized (no config, API client or scheduler)
+     */
+    static ExarotonPlugin plugin(ProxyServer proxy) {
+        return new ExarotonPlugin(proxy, NOPLogger.NOP_LOGGER, Path.of("build", "test-data"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(Class<T> type, Map<String, Handler> handlers) {
+        return (T) Proxy.newProxyInstance(TestProxy.class.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                case "toString":
+                    return type.getSimpleName() + " stub";
+            }
+            Handler handler = handlers.get(method.getName());
+            if (handler == null) {
+                throw new UnsupportedOperationException(type.getSimpleName() + "." + method.getName() + " is not stubbed");
+            }
+            return handler.handle(args);
+        });
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        Object handle(Object[] args);
+    }
+}
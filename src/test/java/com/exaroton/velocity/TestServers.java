@@ -0,0 +1,33 @@
+package com.exaroton.velocity;
+
+import com.exaroton.api.server.Server;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+/**
+ * synthetic exaroton servers for tests
+ */
+final class TestServers {
+
+    private static final Gson GSON = new Gson();
+
+    private TestServers() {
+    }
+
+    /**
+     * @param name server name, the address is "name.exaroton.me"
+     * @param status server status
+     * @return synthetic exaroton server
+     */
+    static Server server(String name, int status) {
+        JsonObject json = new JsonObject();
+        json.addProperty("id", Integer.toHexString(name.hashCode()));
+        json.addProperty("name", name);
+        json.addProperty("address", name + ".exaroton.me");
+        json.addProperty("motd", "test");
+        json.addProperty("status", status);
+        json.addProperty("host", "127.0.0.1");
+        json.addProperty("port", 25565);
+        return GSON.fromJson(json, Server.class);
+    }
+}
@@ -0,0 +1,107 @@
+package com.exaroton.velocity;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimerWheelTest {
+
+    private static void tick(TimerWheel wheel, int ticks) {
+        for (int i = 0; i < ticks; i++) {
+            wheel.tick();
+        }
+    }
+
+    @Test
+    void expiresAfterRoundedUpTicks() {
+        TimerWheel wheel = new TimerWheel(10, 8);
+        AtomicInteger runs = new AtomicInteger();
+        wheel.schedule(25, runs::incrementAndGet);
+
+        tick(wheel, 2);
+        assertEquals(0, runs.get());
+        wheel.tick();
+        assertEquals(1, runs.get());
+        assertEquals(0, wheel.size());
+
+        tick(wheel, 16);
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void deadlinesBeyondOneRotationWaitForTheirTick() {
+        TimerWheel wheel = new TimerWheel(10, 4);
+        AtomicInteger runs = new AtomicInteger();
+        wheel.schedule(60, runs::incrementAndGet);
+
+        // bucket 2 is visited at tick 2 before the deadline at tick 6
+        tick(wheel, 5);
+        assertEquals(0, runs.get());
+        assertEquals(1, wheel.size());
+        wheel.tick();
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void zeroDelayExpiresOnNextTick() {
+        TimerWheel wheel = new TimerWheel(10, 4);
+        AtomicInteger runs = new AtomicInteger();
+        wheel.schedule(0, runs::incrementAndGet);
+        wheel.tick();
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void cancelledTimeoutsDontRun() {
+        TimerWheel wheel = new TimerWheel(10, 4);
+        AtomicInteger runs = new AtomicInteger();
+        TimerWheel.Timeout timeout = wheel.schedule(20, runs::incrementAndGet);
+
+        assertTrue(timeout.cancel());
+        assertFalse(timeout.cancel());
+        tick(wheel, 4);
+        assertEquals(0, runs.get());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void expiredTimeoutsCantBeCancelled() {
+        TimerWheel wheel = new TimerWheel(10, 4);
+        TimerWheel.Timeout timeout = wheel.schedule(10, () -> { });
+        wheel.tick();
+        assertFalse(timeout.cancel());
+    }
+
+    @Test
+    void advanceCatchesUpMissedTicks() {
+        TimerWheel wheel = new TimerWheel(10, 8, 1000);
+        AtomicInteger runs = new AtomicInteger();
+        wheel.schedule(30, runs::incrementAndGet);
+
+        assertEquals(0, wheel.advanceTo(1009));
+        assertEquals(2, wheel.advanceTo(1025));
+        assertEquals(0, runs.get());
+
+        // the deadline is at tick 3
+        assertEquals(1, wheel.advanceTo(1031));
+        assertEquals(1, runs.get());
+        assertEquals(0, wheel.advanceTo(1039));
+        assertEquals(7, wheel.advanceTo(1100));
+    }
+
+    @Test
+    void lateAdvanceExpiresDeadlines() {
+        TimerWheel wheel = new TimerWheel(10, 4, 0);
+        AtomicInteger runs = new AtomicInteger();
+        wheel.schedule(20, runs::incrementAndGet);
+        wheel.schedule(70, runs::incrementAndGet);
+
+        wheel.advanceTo(500);
+        assertEquals(2, runs.get());
+        assertEquals(0, wheel.size());
+    }
+}